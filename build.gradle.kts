@@ -29,6 +29,8 @@ repositories {
 			}
 		}
 	}
+
+	mavenCentral()
 }
 
 dependencies {
@@ -36,6 +38,9 @@ dependencies {
 	mappings(variantOf(libs.quilt.mappings) { classifier("intermediary-v2") })
 
 	modImplementation(libs.bundles.quilt)
+	include(libs.mixin.extras)
+	implementation(libs.mixin.extras)
+	annotationProcessor(libs.mixin.extras)
 	modLocalRuntime(libs.bundles.runtime)
 }
 
@@ -48,6 +53,60 @@ sourceSets {
 		this.runtimeClasspath += main.runtimeClasspath
 		this.runtimeClasspath += main.output
 	}
+
+	// Optional annotation processor generating serializers at compile time, plain Java with no Minecraft dependencies
+	create("processor")
+
+	// JMH microbenchmarks of the serializer, run with `./gradlew jmh`
+	create("jmh") {
+		this.compileClasspath += main.compileClasspath
+		this.compileClasspath += main.output
+		this.runtimeClasspath += main.runtimeClasspath
+		this.runtimeClasspath += main.output
+	}
+}
+
+dependencies {
+	"testmodAnnotationProcessor"(sourceSets.getByName("processor").output)
+
+	"jmhImplementation"(libs.jmh.core)
+	"jmhAnnotationProcessor"(libs.jmh.generator)
+}
+
+val processorJar = tasks.register<Jar>("processorJar") {
+	archiveClassifier.set("processor")
+	from(sourceSets.getByName("processor").output)
+}
+
+tasks.named("assemble") {
+	dependsOn(processorJar)
+}
+
+tasks.register<JavaExec>("jmh") {
+	group = "benchmark"
+	description = "Runs the JMH benchmarks, writing results to build/reports/jmh/results.json. Extra JMH arguments may be passed with -PjmhArgs=\"...\"."
+	classpath = sourceSets.getByName("jmh").runtimeClasspath
+	mainClass.set("org.openjdk.jmh.Main")
+
+	val results = layout.buildDirectory.file("reports/jmh/results.json")
+	outputs.file(results)
+	doFirst { results.get().asFile.parentFile.mkdirs() }
+
+	args("-prof", "gc", "-rf", "json", "-rff", results.get().asFile.absolutePath)
+	args(providers.gradleProperty("jmhArgs").map { it.split(" ").filter(String::isNotBlank) }.getOrElse(listOf()))
+}
+
+tasks.register<JavaExec>("reloadHarness") {
+	group = "benchmark"
+	description = "Times reloads of a synthetic datapack, writing results to build/reports/reload/results.json. Arguments may be passed with -PharnessArgs=\"...\"."
+	classpath = sourceSets.getByName("jmh").runtimeClasspath
+	mainClass.set("io.github.jamalam360.autorecipe.jmh.ReloadHarness")
+
+	val results = layout.buildDirectory.file("reports/reload/results.json")
+	outputs.file(results)
+
+	args("--out", results.get().asFile.absolutePath)
+	args(providers.gradleProperty("harnessArgs").map { it.split(" ").filter(String::isNotBlank) }.getOrElse(listOf()))
 }
 
 loom {
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe.jmh;
+
+import com.google.gson.JsonObject;
+import io.github.jamalam360.autorecipe.AutoRecipeSerializer;
+import io.netty.buffer.Unpooled;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the JSON and packet paths of {@link AutoRecipeSerializer}. Every benchmark operation handles a single recipe, cycling through a set of
+ * {@link #recipes} distinct recipes so larger sets exercise the caches like a real datapack would. Allocation per recipe is reported by the {@code gc}
+ * profiler as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutoRecipeSerializerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int recipes;
+    @Param
+    public RecipeShape shape;
+    private AutoRecipeSerializer<BenchmarkRecipe> serializer;
+    private Identifier[] ids;
+    private JsonObject[] json;
+    private BenchmarkRecipe[] decoded;
+    /**
+     * Every recipe written one after another, with the offset of each in {@link #offsets}.
+     */
+    private PacketByteBuf encoded;
+    private int[] offsets;
+    private PacketByteBuf out;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(this.shape.ordinal());
+        this.serializer = this.shape.createSerializer();
+        this.ids = new Identifier[this.recipes];
+        this.json = new JsonObject[this.recipes];
+        this.decoded = new BenchmarkRecipe[this.recipes];
+        this.encoded = new PacketByteBuf(Unpooled.buffer());
+        this.offsets = new int[this.recipes];
+        this.out = new PacketByteBuf(Unpooled.buffer());
+
+        for (int i = 0; i < this.recipes; i++) {
+            this.ids[i] = new Identifier("autorecipe_jmh", "recipe_" + i);
+            this.json[i] = this.shape.generate(random);
+            this.decoded[i] = this.serializer.read(this.ids[i], this.json[i]);
+            this.offsets[i] = this.encoded.writerIndex();
+            this.serializer.write(this.encoded, this.decoded[i]);
+        }
+    }
+
+    private int next() {
+        int i = this.next;
+        this.next = i + 1 == this.recipes ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public BenchmarkRecipe readJson() {
+        int i = this.next();
+        return this.serializer.read(this.ids[i], this.json[i]);
+    }
+
+    @Benchmark
+    public JsonObject toJson() {
+        return this.serializer.toJson(this.decoded[this.next()]);
+    }
+
+    @Benchmark
+    public BenchmarkRecipe readPacket() {
+        int i = this.next();
+        this.encoded.readerIndex(this.offsets[i]);
+        return this.serializer.read(this.ids[i], this.encoded);
+    }
+
+    @Benchmark
+    public int writePacket() {
+        this.out.clear();
+        this.serializer.write(this.out, this.decoded[this.next()]);
+        return this.out.writerIndex();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe.jmh;
+
+import io.github.jamalam360.autorecipe.AutoSerializedRecipe;
+import io.github.jamalam360.autorecipe.RecipeVar;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.collection.DefaultedList;
+import net.minecraft.world.World;
+
+/**
+ * Synthetic recipes covering the shapes of field supported by the serializer. Only types that don't need the Minecraft registries to be bootstrapped are
+ * used, so the benchmarks run in a plain JVM.
+ */
+public abstract class BenchmarkRecipe extends AutoSerializedRecipe<Inventory> {
+
+    @Override
+    public boolean matches(Inventory inventory, World world) {
+        return false;
+    }
+
+    @Override
+    public ItemStack craft(Inventory inventory, DynamicRegistryManager manager) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemStack getResult(DynamicRegistryManager manager) {
+        throw new UnsupportedOperationException();
+    }
+
+    public static class Primitives extends BenchmarkRecipe {
+        @RecipeVar
+        int count;
+        @RecipeVar
+        long seed;
+        @RecipeVar
+        float chance;
+        @RecipeVar
+        double experience;
+        @RecipeVar
+        boolean enabled;
+        @RecipeVar
+        String group;
+        @RecipeVar
+        Identifier result;
+    }
+
+    public static class Collections extends BenchmarkRecipe {
+        @RecipeVar
+        List<Integer> weights;
+        @RecipeVar
+        Set<String> tags;
+        @RecipeVar
+        DefaultedList<Identifier> results;
+    }
+
+    public static class Maps extends BenchmarkRecipe {
+        @RecipeVar
+        Map<String, Integer> costs;
+        @RecipeVar
+        Map<Identifier, String> names;
+    }
+
+    public static class Nested extends BenchmarkRecipe {
+        @RecipeVar("input/item/id")
+        Identifier input;
+        @RecipeVar("input/item/count")
+        int inputCount;
+        @RecipeVar("output/id")
+        Identifier output;
+        @RecipeVar(value = "output/chance", required = false)
+        Float outputChance;
+        @RecipeVar("time")
+        int time;
+    }
+
+    public abstract static class AbstractInherited extends BenchmarkRecipe {
+        @RecipeVar
+        public Identifier base;
+        @RecipeVar
+        public int baseTime;
+    }
+
+    public static class Inherited extends AbstractInherited {
+        @RecipeVar
+        Identifier own;
+        @RecipeVar(required = false)
+        String ownGroup;
+    }
+}
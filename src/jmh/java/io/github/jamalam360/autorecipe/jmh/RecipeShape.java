@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe.jmh;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.github.jamalam360.autorecipe.AutoRecipeSerializer;
+import java.util.Random;
+import java.util.function.Supplier;
+import net.minecraft.util.Identifier;
+
+/**
+ * A kind of {@link BenchmarkRecipe}, with its serializer and a generator of random recipe JSON for it.
+ */
+public enum RecipeShape {
+    PRIMITIVES(BenchmarkRecipe.Primitives.class, BenchmarkRecipe.Primitives::new) {
+        @Override
+        JsonObject generate(Random random) {
+            JsonObject json = new JsonObject();
+            json.addProperty("count", random.nextInt(64));
+            json.addProperty("seed", random.nextLong());
+            json.addProperty("chance", random.nextFloat());
+            json.addProperty("experience", random.nextDouble() * 10);
+            json.addProperty("enabled", random.nextBoolean());
+            json.addProperty("group", "group_" + random.nextInt(16));
+            json.addProperty("result", id(random));
+            return json;
+        }
+    },
+    COLLECTIONS(BenchmarkRecipe.Collections.class, BenchmarkRecipe.Collections::new) {
+        @Override
+        JsonObject generate(Random random) {
+            JsonObject json = new JsonObject();
+            JsonArray weights = new JsonArray();
+            JsonArray tags = new JsonArray();
+            JsonArray results = new JsonArray();
+
+            int size = 1 + random.nextInt(8);
+
+            for (int i = 0; i < size; i++) {
+                weights.add(random.nextInt(100));
+                tags.add("tag_" + random.nextInt(32));
+                results.add(id(random));
+            }
+
+            json.add("weights", weights);
+            json.add("tags", tags);
+            json.add("results", results);
+            return json;
+        }
+    },
+    MAPS(BenchmarkRecipe.Maps.class, BenchmarkRecipe.Maps::new) {
+        @Override
+        JsonObject generate(Random random) {
+            JsonObject json = new JsonObject();
+            JsonObject costs = new JsonObject();
+            JsonObject names = new JsonObject();
+
+            int size = 1 + random.nextInt(8);
+
+            for (int i = 0; i < size; i++) {
+                costs.addProperty("cost_" + random.nextInt(32), random.nextInt(1000));
+                names.addProperty(id(random), "name_" + random.nextInt(1000));
+            }
+
+            json.add("costs", costs);
+            json.add("names", names);
+            return json;
+        }
+    },
+    NESTED(BenchmarkRecipe.Nested.class, BenchmarkRecipe.Nested::new) {
+        @Override
+        JsonObject generate(Random random) {
+            JsonObject json = new JsonObject();
+            JsonObject input = new JsonObject();
+            JsonObject item = new JsonObject();
+            JsonObject output = new JsonObject();
+            item.addProperty("id", id(random));
+            item.addProperty("count", 1 + random.nextInt(64));
+            input.add("item", item);
+            output.addProperty("id", id(random));
+            output.addProperty("chance", random.nextFloat());
+
+            json.add("input", input);
+            json.add("output", output);
+            json.addProperty("time", random.nextInt(400));
+            return json;
+        }
+    },
+    INHERITED(BenchmarkRecipe.Inherited.class, BenchmarkRecipe.Inherited::new) {
+        @Override
+        JsonObject generate(Random random) {
+            JsonObject json = new JsonObject();
+            json.addProperty("base", id(random));
+            json.addProperty("baseTime", random.nextInt(400));
+            json.addProperty("own", id(random));
+            json.addProperty("ownGroup", "group_" + random.nextInt(16));
+
+            return json;
+        }
+    };
+
+    private final Class<? extends BenchmarkRecipe> clazz;
+    private final Supplier<? extends BenchmarkRecipe> constructor;
+
+    RecipeShape(Class<? extends BenchmarkRecipe> clazz, Supplier<? extends BenchmarkRecipe> constructor) {
+        this.clazz = clazz;
+        this.constructor = constructor;
+    }
+
+    abstract JsonObject generate(Random random);
+
+    @SuppressWarnings("unchecked")
+    AutoRecipeSerializer<BenchmarkRecipe> createSerializer() {
+        return new AutoRecipeSerializer<>(id -> this.constructor.get(), (Class<BenchmarkRecipe>) this.clazz, new Identifier("autorecipe_jmh", this.name().toLowerCase()));
+    }
+
+    private static String id(Random random) {
+        return "autorecipe_jmh:item_" + random.nextInt(256);
+    }
+}
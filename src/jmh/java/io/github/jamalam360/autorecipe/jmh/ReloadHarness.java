@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe.jmh;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import io.github.jamalam360.autorecipe.AutoRecipeSerializer;
+import io.github.jamalam360.autorecipe.jmh.SyntheticDatapack.RecipeFile;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.minecraft.util.Identifier;
+
+/**
+ * Measures a full reload of a {@link SyntheticDatapack} without launching the game: every recipe file is read and parsed, then decoded by the serializer of its
+ * type (including {@code compile()}), as the recipe manager does on {@code /reload}. Run with {@code ./gradlew reloadHarness}.
+ * <p>
+ * Arguments, all optional:
+ * <ul>
+ *     <li>{@code --recipes <n>} the number of recipes, 10000 by default</li>
+ *     <li>{@code --types <m>} the number of recipe types, 10 by default</li>
+ *     <li>{@code --warmup <n>} the number of reloads run before measuring, 3 by default</li>
+ *     <li>{@code --iterations <n>} the number of measured reloads, 5 by default</li>
+ *     <li>{@code --mode tree|stream} whether recipes are parsed into a {@link JsonObject} and then decoded, or decoded while streaming the file, {@code tree}
+ *     by default. In {@code stream} mode parsing and decoding are measured together as decoding.</li>
+ *     <li>{@code --datapack <dir>} where to generate the datapack, a temporary directory by default</li>
+ *     <li>{@code --out <file>} where to write the results as JSON</li>
+ * </ul>
+ */
+public final class ReloadHarness {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>(Map.of("recipes", "10000", "types", "10", "warmup", "3", "iterations", "5", "mode", "tree"));
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        int recipes = Integer.parseInt(options.get("recipes"));
+        int types = Integer.parseInt(options.get("types"));
+        int warmup = Integer.parseInt(options.get("warmup"));
+        int iterations = Integer.parseInt(options.get("iterations"));
+        boolean stream = switch (options.get("mode")) {
+            case "tree" -> false;
+            case "stream" -> true;
+            default -> throw new IllegalArgumentException("Unknown mode " + options.get("mode"));
+        };
+        Path datapackDir = options.containsKey("datapack") ? Path.of(options.get("datapack")) : Files.createTempDirectory("autorecipe-datapack");
+
+        System.out.println("Generating " + recipes + " recipes of " + types + " types in " + datapackDir);
+        SyntheticDatapack datapack = SyntheticDatapack.generate(datapackDir, recipes, types, 0);
+
+        for (int i = 0; i < warmup; i++) {
+            reload(datapack, stream);
+        }
+
+        Result[] results = new Result[iterations];
+
+        for (int i = 0; i < iterations; i++) {
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+            results[i] = reload(datapack, stream);
+            System.out.println("Reload " + (i + 1) + "/" + iterations + ": " + results[i].wallNanos / 1_000_000 + "ms, peak heap " + results[i].peakHeap / (1024 * 1024)
+                  + "MiB");
+        }
+
+        JsonObject json = toJson(options, results);
+        System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(json.get("summary")));
+
+        if (options.containsKey("out")) {
+            Path out = Path.of(options.get("out"));
+            Files.createDirectories(out.toAbsolutePath().getParent());
+            Files.writeString(out, new GsonBuilder().setPrettyPrinting().create().toJson(json), StandardCharsets.UTF_8);
+            System.out.println("Results written to " + out);
+        }
+    }
+
+    private static Result reload(SyntheticDatapack datapack, boolean stream) throws IOException {
+        Map<Identifier, AutoRecipeSerializer<BenchmarkRecipe>> serializers = datapack.getSerializers();
+        Map<Identifier, TypeResult> byType = new LinkedHashMap<>();
+        serializers.keySet().forEach(type -> byType.put(type, new TypeResult()));
+        long parseNanos = 0;
+        long start = System.nanoTime();
+
+        for (Map.Entry<Identifier, RecipeFile> entry : datapack.getRecipeFiles().entrySet()) {
+            Identifier id = entry.getKey();
+            Path path = entry.getValue().path();
+
+            if (stream) {
+                // The streaming path never builds a tree, so the type is taken from the directory the recipe is in rather than its type property
+                Identifier type = entry.getValue().type();
+                long decodeStart = System.nanoTime();
+
+                try (Reader reader = Files.newBufferedReader(path)) {
+                    serializers.get(type).read(id, new JsonReader(reader));
+                }
+
+                byType.get(type).add(System.nanoTime() - decodeStart);
+            } else {
+                long parseStart = System.nanoTime();
+                JsonObject json;
+
+                try (Reader reader = Files.newBufferedReader(path)) {
+                    json = JsonParser.parseReader(reader).getAsJsonObject();
+                }
+
+                parseNanos += System.nanoTime() - parseStart;
+                Identifier type = new Identifier(json.get("type").getAsString());
+                long decodeStart = System.nanoTime();
+                serializers.get(type).read(id, json);
+                byType.get(type).add(System.nanoTime() - decodeStart);
+            }
+        }
+
+        long wallNanos = System.nanoTime() - start;
+        long peakHeap = 0;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return new Result(wallNanos, parseNanos, peakHeap, byType);
+    }
+
+    private static JsonObject toJson(Map<String, String> options, Result[] results) {
+        JsonObject json = new JsonObject();
+        JsonObject config = new JsonObject();
+        options.forEach(config::addProperty);
+        config.addProperty("java", System.getProperty("java.version"));
+        config.addProperty("availableProcessors", Runtime.getRuntime().availableProcessors());
+        json.addProperty("timestamp", Instant.now().toString());
+        json.add("config", config);
+
+        JsonObject summary = new JsonObject();
+        summary.addProperty("medianWallMs", median(Arrays.stream(results).mapToLong(Result::wallNanos).toArray()) / 1e6);
+        summary.addProperty("medianParseMs", median(Arrays.stream(results).mapToLong(Result::parseNanos).toArray()) / 1e6);
+        summary.addProperty("maxPeakHeapBytes", Arrays.stream(results).mapToLong(Result::peakHeap).max().orElse(0));
+        JsonObject types = new JsonObject();
+
+        for (Identifier type : results[0].byType.keySet()) {
+            JsonObject typeJson = new JsonObject();
+            typeJson.addProperty("recipes", results[0].byType.get(type).count);
+            typeJson.addProperty("medianDecodeMs", median(Arrays.stream(results).mapToLong(result -> result.byType.get(type).nanos).toArray()) / 1e6);
+            types.add(type.toString(), typeJson);
+        }
+
+        summary.add("types", types);
+        json.add("summary", summary);
+
+        JsonArray runs = new JsonArray();
+
+        for (Result result : results) {
+            JsonObject run = new JsonObject();
+            run.addProperty("wallMs", result.wallNanos / 1e6);
+            run.addProperty("parseMs", result.parseNanos / 1e6);
+            run.addProperty("peakHeapBytes", result.peakHeap);
+            JsonObject runTypes = new JsonObject();
+            result.byType.forEach((type, typeResult) -> runTypes.addProperty(type.toString(), typeResult.nanos / 1e6));
+            run.add("decodeMsByType", runTypes);
+            runs.add(run);
+        }
+
+        json.add("runs", runs);
+        return json;
+    }
+
+    private static double median(long[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2.0;
+    }
+
+    private record Result(long wallNanos, long parseNanos, long peakHeap, Map<Identifier, TypeResult> byType) {}
+
+    private static final class TypeResult {
+
+        private int count;
+        private long nanos;
+
+        void add(long nanos) {
+            this.count++;
+            this.nanos += nanos;
+        }
+    }
+}
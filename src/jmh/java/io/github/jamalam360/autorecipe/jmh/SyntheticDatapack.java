@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe.jmh;
+
+import com.google.gson.JsonObject;
+import io.github.jamalam360.autorecipe.AutoRecipeSerializer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import net.minecraft.util.Identifier;
+
+/**
+ * A datapack of randomly generated auto recipes spread evenly over a number of recipe types, each type using one of the {@link RecipeShape}s in turn. The
+ * recipes are written to disk in the usual {@code data/<namespace>/recipes} layout, in a directory per type.
+ */
+public final class SyntheticDatapack {
+
+    public static final String NAMESPACE = "autorecipe_synthetic";
+    private final Path root;
+    private final Map<Identifier, AutoRecipeSerializer<BenchmarkRecipe>> serializers;
+
+    private SyntheticDatapack(Path root, Map<Identifier, AutoRecipeSerializer<BenchmarkRecipe>> serializers) {
+        this.root = root;
+        this.serializers = serializers;
+    }
+
+    /**
+     * Generates a datapack into an empty directory.
+     *
+     * @param recipes The total number of recipes
+     * @param types The number of recipe types
+     * @param seed The seed of the random generator, so the same arguments always produce the same datapack
+     */
+    public static SyntheticDatapack generate(Path root, int recipes, int types, long seed) throws IOException {
+        Random random = new Random(seed);
+        Map<Identifier, AutoRecipeSerializer<BenchmarkRecipe>> serializers = new LinkedHashMap<>();
+        List<RecipeShape> shapes = new ArrayList<>(types);
+
+        for (int i = 0; i < types; i++) {
+            RecipeShape shape = RecipeShape.values()[i % RecipeShape.values().length];
+            serializers.put(new Identifier(NAMESPACE, shape.name().toLowerCase() + "_" + i), shape.createSerializer());
+            shapes.add(shape);
+        }
+
+        List<Identifier> typeIds = List.copyOf(serializers.keySet());
+        Path recipesDir = root.resolve("data").resolve(NAMESPACE).resolve("recipes");
+
+        for (Identifier type : typeIds) {
+            Files.createDirectories(recipesDir.resolve(type.getPath()));
+        }
+
+        for (int i = 0; i < recipes; i++) {
+            int type = i % types;
+            JsonObject json = new JsonObject();
+            json.addProperty("type", typeIds.get(type).toString());
+            shapes.get(type).generate(random).entrySet().forEach(entry -> json.add(entry.getKey(), entry.getValue()));
+            Files.writeString(recipesDir.resolve(typeIds.get(type).getPath()).resolve("recipe_" + i + ".json"), json.toString(), StandardCharsets.UTF_8);
+        }
+
+        return new SyntheticDatapack(root, serializers);
+    }
+
+    /**
+     * @return The serializer of every recipe type in the datapack, by type id
+     */
+    public Map<Identifier, AutoRecipeSerializer<BenchmarkRecipe>> getSerializers() {
+        return this.serializers;
+    }
+
+    /**
+     * @return Every recipe file in the datapack, mapped to its recipe id
+     */
+    public Map<Identifier, RecipeFile> getRecipeFiles() {
+        Path recipesDir = this.root.resolve("data").resolve(NAMESPACE).resolve("recipes");
+        Map<Identifier, RecipeFile> files = new LinkedHashMap<>();
+
+        for (Identifier type : this.serializers.keySet()) {
+            try (Stream<Path> stream = Files.list(recipesDir.resolve(type.getPath()))) {
+                stream.sorted().forEach(path -> {
+                    String name = path.getFileName().toString();
+                    files.put(new Identifier(NAMESPACE, type.getPath() + "/" + name.substring(0, name.length() - ".json".length())), new RecipeFile(path, type));
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * @param type The recipe type, known from the directory the file is in
+     */
+    public record RecipeFile(Path path, Identifier type) {}
+}
@@ -0,0 +1,48 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import java.util.concurrent.CompletableFuture;
+import net.fabricmc.fabric.api.client.networking.v1.ClientLoginConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientLoginNetworking;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import org.jetbrains.annotations.ApiStatus.Internal;
+import org.quiltmc.loader.api.ModContainer;
+import org.quiltmc.qsl.base.api.entrypoint.client.ClientModInitializer;
+
+@Internal
+public class AutoRecipeClientInit implements ClientModInitializer {
+
+    @Override
+    public void onInitializeClient(ModContainer mod) {
+        ClientLoginConnectionEvents.INIT.register((handler, client) -> RecipeSyncDelta.setServerSupported(false));
+        ClientLoginNetworking.registerGlobalReceiver(RecipeSchemaNegotiation.CHANNEL, (client, handler, buf, listenerAdder) -> {
+            RecipeSyncDelta.setServerSupported(true);
+            return CompletableFuture.completedFuture(RecipeSchemaNegotiation.respond(buf));
+        });
+        // Registering the channel tells the server that this client can read recipe sync deltas
+        ClientPlayNetworking.registerGlobalReceiver(RecipeSyncDelta.CHANNEL, (client, handler, buf, responseSender) -> {
+        });
+    }
+}
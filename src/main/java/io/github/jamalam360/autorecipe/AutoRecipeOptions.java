@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+/**
+ * Per recipe type settings, passed to {@link AutoRecipeRegistry#registerRecipeSerializer(net.minecraft.util.Identifier, java.util.function.Function,
+ * AutoRecipeOptions)}.
+ */
+public final class AutoRecipeOptions {
+
+    public static final AutoRecipeOptions DEFAULT = builder().build();
+
+    private final boolean threadSafe;
+    private final RecipePacketFormat packetFormat;
+    private final boolean persistentCache;
+    private final boolean incrementalReload;
+
+    private AutoRecipeOptions(Builder builder) {
+        this.threadSafe = builder.threadSafe;
+        this.packetFormat = builder.packetFormat;
+        this.persistentCache = builder.persistentCache;
+        this.incrementalReload = builder.incrementalReload;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Whether the recipe's constructor and {@link AutoSerializedRecipe#compile()} may be called from several threads at once
+     */
+    public boolean isThreadSafe() {
+        return this.threadSafe;
+    }
+
+    public RecipePacketFormat getPacketFormat() {
+        return this.packetFormat;
+    }
+
+    /**
+     * @return Whether decoded recipes of this type are kept in a persistent cache between reloads
+     */
+    public boolean isPersistentCache() {
+        return this.persistentCache;
+    }
+
+    /**
+     * @return Whether recipes of this type whose JSON has not changed are reused by a reload rather than decoded again
+     */
+    public boolean isIncrementalReload() {
+        return this.incrementalReload;
+    }
+
+    public static final class Builder {
+
+        private boolean threadSafe = false;
+        private RecipePacketFormat packetFormat = RecipePacketFormat.POSITIONAL;
+        private boolean persistentCache = false;
+        private boolean incrementalReload = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Declares that the recipe's constructor and {@link AutoSerializedRecipe#compile()} do not touch shared mutable state, so recipes of this type may be
+         * decoded in parallel when {@link AutoRecipeRegistry#setParallelDecoding(boolean) parallel decoding} is enabled.
+         */
+        public Builder threadSafe() {
+            this.threadSafe = true;
+            return this;
+        }
+
+        /**
+         * Sets the format used to write recipes of this type to packets, {@link RecipePacketFormat#POSITIONAL} by default.
+         */
+        public Builder packetFormat(RecipePacketFormat packetFormat) {
+            this.packetFormat = packetFormat;
+            return this;
+        }
+
+        /**
+         * Keeps the packet encoding of every recipe of this type in a cache file, so recipes whose JSON has not changed since the last reload (or the last
+         * server start) are rebuilt from the cache rather than parsed. Recipes must survive a round trip through
+         * {@link AutoRecipeSerializer#write(net.minecraft.network.PacketByteBuf, net.minecraft.recipe.Recipe) write} and
+         * {@link AutoRecipeSerializer#read(net.minecraft.util.Identifier, net.minecraft.network.PacketByteBuf) read} unchanged, so the cache is only used while
+         * every variable serializer of the recipe type is {@link RecipeVarSerializer#isPacketLossless() lossless}.
+         */
+        public Builder persistentCache() {
+            this.persistentCache = true;
+            return this;
+        }
+
+        /**
+         * Keeps the recipes of this type decoded by each reload, so the next reload reuses the already compiled recipe for every recipe whose JSON has not
+         * changed, and only decodes the rest. Recipes must not be mutated after they are {@link AutoSerializedRecipe#compile() compiled}, as the same instance
+         * may be kept across reloads.
+         */
+        public Builder incrementalReload() {
+            this.incrementalReload = true;
+            return this;
+        }
+
+        public AutoRecipeOptions build() {
+            return new AutoRecipeOptions(this);
+        }
+    }
+}
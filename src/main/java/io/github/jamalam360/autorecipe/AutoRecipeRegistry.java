@@ -25,11 +25,14 @@
 package io.github.jamalam360.autorecipe;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import net.minecraft.inventory.Inventory;
 import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.recipe.RecipeSerializer;
 import net.minecraft.recipe.RecipeType;
 import net.minecraft.registry.Registries;
 import net.minecraft.registry.Registry;
@@ -45,10 +48,46 @@ public class AutoRecipeRegistry {
 
     private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
     private static final Identifier AUTO_CLASS = new Identifier("auto", "class");
-    private static final Map<Class<? extends Recipe<?>>, AutoRecipeSerializer<?>> RECIPE_SERIALIZERS = new HashMap<>();
-    private static final Map<Class<? extends Recipe<?>>, RecipeType<?>> RECIPE_TYPES = new HashMap<>();
-    protected static final Map<Class<?>, RecipeVarSerializer<?>> VAR_SERIALIZERS = new HashMap<>();
-    private static final Map<String, Map<Class<?>, RecipeVarSerializer<?>>> SCOPED_VAR_SERIALIZERS = new HashMap<>();
+    /**
+     * Guards registration. The maps below are immutable, and replaced with updated copies under this lock, so they can be read from any thread without
+     * locking.
+     */
+    private static final Object LOCK = new Object();
+    private static volatile Map<Class<? extends Recipe<?>>, AutoRecipeSerializer<?>> recipeSerializers = Map.of();
+    private static volatile Map<Class<? extends Recipe<?>>, RecipeType<?>> recipeTypes = Map.of();
+    private static volatile Map<Class<?>, RecipeVarSerializer<?>> varSerializers = Map.of();
+    private static volatile Map<String, Map<Class<?>, RecipeVarSerializer<?>>> scopedVarSerializers = Map.of();
+    /**
+     * Incremented by every recipe registration, invalidating the {@link #BINDINGS} resolved before it.
+     */
+    private static volatile int bindingEpoch;
+    /**
+     * Incremented by every variable serializer registration, invalidating the recipes kept for {@link AutoRecipeOptions#isIncrementalReload() incremental
+     * reloads}.
+     */
+    private static volatile int variableSerializerEpoch;
+    /**
+     * The serializer and type of each recipe class, resolved once per class. A class that is not registered itself uses those of its nearest registered
+     * superclass.
+     */
+    private static final ClassValue<Binding> BINDINGS = new ClassValue<>() {
+        @Override
+        protected Binding computeValue(Class<?> clazz) {
+            // Read the epoch before the maps, so a registration racing with this leaves a binding that is recomputed on next use
+            int epoch = bindingEpoch;
+
+            for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+                AutoRecipeSerializer<?> serializer = recipeSerializers.get(c);
+
+                if (serializer != null) {
+                    return new Binding(serializer, recipeTypes.get(c), epoch);
+                }
+            }
+
+            return new Binding(null, null, epoch);
+        }
+    };
+    private static volatile boolean parallelDecoding = Boolean.getBoolean("autorecipe.parallelDecoding");
 
     static {
         DefaultRecipeVarSerializers.registerDefaultSerializers();
@@ -63,69 +102,196 @@ public class AutoRecipeRegistry {
         return registerRecipeSerializer(id, i -> supplier.get());
     }
 
+    /**
+     * Creates and registers a recipe type and serializer based on the provided supplier of a child of {@link AutoSerializedRecipe}, such as a blank
+     * constructor, with the given options
+     *
+     * @return The recipe type
+     */
+    public static <V extends Inventory, T extends AutoSerializedRecipe<V>> RecipeType<T> registerRecipeSerializer(Identifier id, Supplier<T> supplier, AutoRecipeOptions options) {
+        return registerRecipeSerializer(id, i -> supplier.get(), options);
+    }
+
     /**
      * Creates and registers a recipe type and serializer based on the provided function of an {@link Identifier} to a {@link Recipe}, such as a constructor
      *
      * @return The recipe type
      */
     public static <V extends Inventory, T extends Recipe<V>> RecipeType<T> registerRecipeSerializer(Identifier id, Function<Identifier, T> function) {
+        return registerRecipeSerializer(id, function, AutoRecipeOptions.DEFAULT);
+    }
+
+    /**
+     * Creates and registers a recipe type and serializer based on the provided function of an {@link Identifier} to a {@link Recipe}, such as a constructor,
+     * with the given options
+     *
+     * @return The recipe type
+     */
+    public static <V extends Inventory, T extends Recipe<V>> RecipeType<T> registerRecipeSerializer(Identifier id, Function<Identifier, T> function, AutoRecipeOptions options) {
         Class<T> clazz = (Class<T>) function.apply(AUTO_CLASS).getClass();
-        AutoRecipeSerializer<T> serializer = new AutoRecipeSerializer<>(function, clazz, id);
+        AutoRecipeSerializer<T> serializer = AutoRecipeSerializer.create(function, clazz, id, options);
         RecipeType<T> type = new RecipeType<>() {
             public String toString() {
                 return id.toString();
             }
         };
 
-        RECIPE_SERIALIZERS.put(clazz, serializer);
-        RECIPE_TYPES.put(clazz, type);
+        synchronized (LOCK) {
+            recipeSerializers = with(recipeSerializers, clazz, serializer);
+            recipeTypes = with(recipeTypes, clazz, type);
+            // Subclasses may now resolve to this class, so every binding is recomputed on next use
+            bindingEpoch++;
+        }
+
         Registry.register(Registries.RECIPE_TYPE, id, type);
         Registry.register(Registries.RECIPE_SERIALIZER, id, serializer);
 
         return type;
     }
 
+    /**
+     * Enables or disables parallel decoding of recipe JSON during datapack reloads. When enabled, recipes of every {@link AutoRecipeSerializer#isThreadSafe()
+     * thread safe} recipe type are decoded across a fork-join pool before the recipe manager consumes them, in its usual order.
+     * <p>
+     * This is disabled by default, and can also be enabled with the {@code autorecipe.parallelDecoding} system property.
+     */
+    public static void setParallelDecoding(boolean enabled) {
+        parallelDecoding = enabled;
+    }
+
+    public static boolean isParallelDecoding() {
+        return parallelDecoding;
+    }
+
     /**
      * Registers a recipe variable serializer for a given class in a given namespace
      */
     public static <T> void registerVariableSerializer(String namespace, Class<T> clazz, RecipeVarSerializer<T> serializer) {
-        Map<Class<?>, RecipeVarSerializer<?>> map = SCOPED_VAR_SERIALIZERS.computeIfAbsent(namespace, a -> new HashMap<>());
+        synchronized (LOCK) {
+            Map<Class<?>, RecipeVarSerializer<?>> map = scopedVarSerializers.getOrDefault(namespace, Map.of());
 
-        if (map.containsKey(clazz)) {
-            LOGGER.warn("Variable serializer registered over existing serializer for class " + clazz.getTypeName());
-        }
+            if (map.containsKey(clazz)) {
+                LOGGER.warn("Variable serializer registered over existing serializer for class " + clazz.getTypeName());
+            }
 
-        map.put(clazz, serializer);
+            scopedVarSerializers = with(scopedVarSerializers, namespace, with(map, clazz, serializer));
+            variableSerializerEpoch++;
+        }
     }
 
     /**
      * Registers a recipe variable serializer in the global scope for a given class. Use with caution.
      */
     public static <T> void registerGlobalVariableSerializer(Class<T> clazz, RecipeVarSerializer<T> serializer) {
-        if (VAR_SERIALIZERS.containsKey(clazz)) {
-            LOGGER.warn("Global variable serializer registered over existing serializer for class " + clazz.getTypeName());
+        synchronized (LOCK) {
+            if (varSerializers.containsKey(clazz)) {
+                LOGGER.warn("Global variable serializer registered over existing serializer for class " + clazz.getTypeName());
+            }
+
+            varSerializers = with(varSerializers, clazz, serializer);
+            variableSerializerEpoch++;
+        }
+    }
+
+    /**
+     * Registers the global variable serializer of one class for another, used for the boxed equivalents of primitive types.
+     */
+    static void registerGlobalVariableSerializerAlias(Class<?> alias, Class<?> clazz) {
+        synchronized (LOCK) {
+            varSerializers = with(varSerializers, alias, varSerializers.get(clazz));
+            variableSerializerEpoch++;
         }
+    }
 
-        VAR_SERIALIZERS.put(clazz, serializer);
+    static int getVariableSerializerEpoch() {
+        return variableSerializerEpoch;
     }
 
     public static AutoRecipeSerializer<? extends Recipe<?>> getRecipeSerializer(Class<?> clazz) {
-        return RECIPE_SERIALIZERS.get(clazz);
+        return getBinding(clazz).serializer();
     }
 
     public static RecipeVarSerializer<?> getVariableSerializer(String namespace, Class<?> clazz) {
-        if (SCOPED_VAR_SERIALIZERS.containsKey(namespace)) {
-            Map<Class<?>, RecipeVarSerializer<?>> map = SCOPED_VAR_SERIALIZERS.get(namespace);
+        Map<Class<?>, RecipeVarSerializer<?>> map = scopedVarSerializers.get(namespace);
 
-            if (map.containsKey(clazz)) {
-                return map.get(clazz);
+        if (map != null) {
+            RecipeVarSerializer<?> serializer = map.get(clazz);
+
+            if (serializer != null) {
+                return serializer;
             }
         }
 
-        return VAR_SERIALIZERS.get(clazz);
+        return varSerializers.get(clazz);
     }
 
     public static RecipeType<?> getRecipeType(Class<?> clazz) {
-        return RECIPE_TYPES.get(clazz);
+        return getBinding(clazz).type();
+    }
+
+    static Binding getBinding(Class<?> clazz) {
+        Binding binding = BINDINGS.get(clazz);
+
+        if (binding.epoch() != bindingEpoch) {
+            BINDINGS.remove(clazz);
+            binding = BINDINGS.get(clazz);
+        }
+
+        return binding;
+    }
+
+    /**
+     * @return A snapshot of the {@link RecipeStats counters} of every registered Auto Recipe serializer, by serializer id. The counters are all zero unless
+     * {@link RecipeStats#ENABLED instrumentation is enabled}.
+     */
+    public static Map<Identifier, RecipeStats.Snapshot> getStats() {
+        Map<Identifier, RecipeStats.Snapshot> stats = new LinkedHashMap<>();
+
+        for (RecipeSerializer<?> serializer : Registries.RECIPE_SERIALIZER) {
+            if (serializer instanceof AutoRecipeSerializer<?> auto) {
+                stats.put(auto.getId(), auto.getStats().snapshot());
+            }
+        }
+
+        return stats;
     }
+
+    /**
+     * @return The {@link AutoRecipeSerializer#getSchemaFingerprint() schema fingerprint} of every registered Auto Recipe serializer, by serializer id
+     */
+    public static Map<Identifier, Long> getSchemaFingerprints() {
+        Map<Identifier, Long> fingerprints = new LinkedHashMap<>();
+
+        for (RecipeSerializer<?> serializer : Registries.RECIPE_SERIALIZER) {
+            if (serializer instanceof AutoRecipeSerializer<?> auto) {
+                fingerprints.put(auto.getId(), auto.getSchemaFingerprint());
+            }
+        }
+
+        return fingerprints;
+    }
+
+    /**
+     * @return The recipes of a type held by a recipe manager, indexed by their {@link RecipeVar#key() lookup key}. The index is built the first time it is
+     * requested after each reload of the manager's recipes.
+     */
+    public static <C extends Inventory, T extends Recipe<C>> RecipeIndex<C, T> getRecipeIndex(RecipeManager manager, RecipeType<T> type) {
+        return (RecipeIndex<C, T>) ((RecipeIndexHolder) manager).autorecipe$getIndexes().computeIfAbsent(type, t -> new RecipeIndex<>(manager.listAllOfType(type)));
+    }
+
+    /**
+     * @return An immutable copy of a map with one entry added or replaced
+     */
+    private static <K, V> Map<K, V> with(Map<K, V> map, K key, V value) {
+        Map<K, V> copy = new HashMap<>(map);
+        copy.put(key, value);
+        return Map.copyOf(copy);
+    }
+
+    /**
+     * The serializer and type registered for a recipe class, either of which is {@code null} if the class is not registered.
+     *
+     * @param epoch The {@link #bindingEpoch} the binding was resolved in
+     */
+    record Binding(AutoRecipeSerializer<?> serializer, RecipeType<?> type, int epoch) {}
 }
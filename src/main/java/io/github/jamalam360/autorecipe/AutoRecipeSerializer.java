@@ -24,35 +24,27 @@
 
 package io.github.jamalam360.autorecipe;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
-import com.google.gson.JsonArray;
+import com.google.common.hash.Hashing;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import it.unimi.dsi.fastutil.objects.ObjectArraySet;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.recipe.Recipe;
 import net.minecraft.util.Identifier;
-import net.minecraft.util.collection.DefaultedList;
+import org.jetbrains.annotations.Nullable;
 import org.quiltmc.qsl.recipe.api.serializer.QuiltRecipeSerializer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * A 'generated' serializer for Auto Recipes.
@@ -64,214 +56,450 @@ import org.slf4j.LoggerFactory;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class AutoRecipeSerializer<T extends Recipe<?>> implements QuiltRecipeSerializer<T> {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    /**
+     * The suffix appended to a recipe class's binary name by the annotation processor to name its generated serializer.
+     */
+    public static final String GENERATED_SUFFIX = "_AutoRecipeSerializer";
+    private static final byte CACHED_ABSENT = 0;
+    private static final byte CACHED_VALUE = 1;
+    private static final byte CACHED_JSON = 2;
     private final Function<Identifier, T> constructor;
-    private final Map<RecipeVarData, Field> variables = new LinkedHashMap<>();
+    private final AutoRecipeOptions options;
+    /**
+     * The precompiled plan of every {@link RecipeVar} in the recipe class, in serialization order.
+     */
+    private final RecipeFieldCodec[] fields;
+    private final List<RecipeVarData> variables;
+    private final int nullableCount;
+    private final RecipeVarTrie trie;
+    /**
+     * The {@link RecipeVar#key() lookup key} of this recipe type, or {@code null} if it has none.
+     */
+    private final RecipeFieldCodec key;
+    /**
+     * The variables by their tag in the {@link RecipePacketFormat#TAGGED tagged} packet format, resolved on first use.
+     */
+    private volatile TaggedFields tags;
     private final String namespace;
+    /**
+     * The persistent cache of this recipe type, or {@code null} if it is not {@link AutoRecipeOptions.Builder#persistentCache() enabled}.
+     */
+    final RecipeDiskCache<T> diskCache;
+    /**
+     * The recipes kept for incremental reloads, or {@code null} if they are not {@link AutoRecipeOptions.Builder#incrementalReload() enabled}.
+     */
+    final RecipeReuseCache<T> reuseCache;
+    private final RecipeStats stats = new RecipeStats();
+    private final Identifier id;
 
     public AutoRecipeSerializer(Function<Identifier, T> constructor, Class<T> clazz, Identifier id) {
+        this(constructor, clazz, id, AutoRecipeOptions.DEFAULT);
+    }
+
+    public AutoRecipeSerializer(Function<Identifier, T> constructor, Class<T> clazz, Identifier id, AutoRecipeOptions options) {
+        this(constructor, id, options, clazz.getTypeName(), RecipeVarField.reflect(clazz));
+    }
+
+    /**
+     * Used by serializers generated by the Auto Recipe annotation processor, which supply their fields directly rather than discovering them reflectively.
+     */
+    protected AutoRecipeSerializer(Function<Identifier, T> constructor, Class<T> clazz, Identifier id, AutoRecipeOptions options, List<RecipeVarField> fields) {
+        this(constructor, id, options, clazz.getTypeName(), fields);
+    }
+
+    private AutoRecipeSerializer(Function<Identifier, T> constructor, Identifier id, AutoRecipeOptions options, String className, List<RecipeVarField> fields) {
         this.constructor = constructor;
+        this.options = options;
+        this.id = id;
         namespace = id.getNamespace();
-        Set<Field> fields = new ObjectArraySet<>();
-        fields.addAll(Arrays.stream(clazz.getDeclaredFields()).toList());
-        fields.addAll(Arrays.stream(clazz.getFields()).toList());
+        List<RecipeFieldCodec> codecs = new ArrayList<>();
+        RecipeFieldCodec key = null;
 
-        for (Field field : fields) {
-            RecipeVar annot = field.getAnnotation(RecipeVar.class);
+        for (RecipeVarField field : fields) {
+            if (field.var().shared() && !RecipeValuePool.isPoolable(field.type())) {
+                throw new RuntimeException("Shared variable " + className + "#" + field.fieldName() + " must be an Identifier, ItemStack or Ingredient, or a collection or map of one of these");
+            }
 
-            if (annot != null) {
-                String name = annot.value();
+            codecs.add(new RecipeFieldCodec(field, namespace, className + "#" + field.fieldName()));
 
-                if (name.equals("")) {
-                    name = field.getName();
+            if (field.var().key()) {
+                if (key != null) {
+                    throw new RuntimeException("Recipe " + className + " has more than one lookup key, " + key.fieldName + " and " + field.fieldName());
+                } else if (!RecipeIndex.isKeyType(field.type())) {
+                    throw new RuntimeException("Lookup key " + className + "#" + field.fieldName() + " must be an Item, ItemStack, Ingredient or Block, or a collection of one of these");
                 }
 
-                variables.put(new RecipeVarData(name, annot.required()), field);
-                RecipeVarSerializer<?> serializer = AutoRecipeRegistry.getVariableSerializer(namespace, field.getType());
+                key = codecs.get(codecs.size() - 1);
+            }
+        }
 
-                if (field.getType() == Map.class) {
-                    Class<?> stringType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+        this.fields = codecs.toArray(new RecipeFieldCodec[0]);
+        this.variables = codecs.stream().map(codec -> codec.var).toList();
+        this.nullableCount = (int) codecs.stream().filter(codec -> codec.nullable).count();
+        this.trie = RecipeVarTrie.build(this.fields);
+        this.key = key;
+        this.diskCache = options.isPersistentCache() ? new RecipeDiskCache<>(this, id) : null;
+        this.reuseCache = options.isIncrementalReload() ? new RecipeReuseCache<>(this) : null;
+    }
 
-                    if (stringType != String.class) {
-                        try {
-                            Constructor cs = stringType.getConstructor(String.class);
+    /**
+     * Creates the serializer for a recipe class, using the serializer generated at compile time by the Auto Recipe annotation processor if there is one, and
+     * discovering the recipe's fields reflectively otherwise. The generated serializer is located reflectively, once per recipe type.
+     */
+    public static <T extends Recipe<?>> AutoRecipeSerializer<T> create(Function<Identifier, T> constructor, Class<T> clazz, Identifier id, AutoRecipeOptions options) {
+        Class<?> generated;
+
+        try {
+            generated = Class.forName(clazz.getName() + GENERATED_SUFFIX, true, clazz.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return new AutoRecipeSerializer<>(constructor, clazz, id, options);
+        }
 
-                            if (!cs.canAccess(this)) {
-                                throw new RuntimeException("Map key for field " + field.getName() + " cannot be constructed from a string");
-                            }
-                        } catch (NoSuchMethodException e) {
-                            throw new RuntimeException("Map key for field " + field.getName() + " cannot be constructed from a string", e);
-                        }
-                    }
-                } else if (serializer == null && field.getType() != List.class && field.getType() != Set.class && field.getType() != DefaultedList.class) {
-                    LOGGER.warn("No serializer found for type " + field.getType().getTypeName() + " at " + clazz.getTypeName() + "#" + field.getName() + ", has it not been registered yet?");
-                }
+        try {
+            return (AutoRecipeSerializer<T>) generated.getConstructor(Function.class, Identifier.class, AutoRecipeOptions.class).newInstance(constructor, id, options);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Failed to construct generated serializer " + generated.getTypeName(), e);
+        }
+    }
+
+    /**
+     * @return The id this serializer is registered with
+     */
+    public Identifier getId() {
+        return this.id;
+    }
+
+    /**
+     * @return The counters of the work done by this serializer, only updated when {@link RecipeStats#ENABLED instrumentation is enabled}
+     */
+    public RecipeStats getStats() {
+        return this.stats;
+    }
+
+    public AutoRecipeOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * @return Whether recipes of this type may be decoded from several threads at once, which requires the recipe type to be declared
+     * {@link AutoRecipeOptions.Builder#threadSafe() thread safe} and every variable serializer it uses to be {@link RecipeVarSerializer#isThreadSafe() thread
+     * safe}
+     */
+    public boolean isThreadSafe() {
+        if (!this.options.isThreadSafe()) {
+            return false;
+        }
+
+        for (RecipeFieldCodec field : this.fields) {
+            if (!field.codec().isThreadSafe()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Whether every variable serializer used by this recipe type has a {@link RecipeVarSerializer#isPacketLossless() lossless} packet encoding, which
+     * the {@link AutoRecipeOptions.Builder#persistentCache() persistent cache} requires
+     */
+    boolean isPacketLossless() {
+        for (RecipeFieldCodec field : this.fields) {
+            if (!field.codec().isPacketLossless()) {
+                return false;
             }
         }
+
+        return true;
+    }
+
+    /**
+     * @return The variables of this recipe type, in serialization order
+     */
+    public List<RecipeVarData> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * @return The value of the {@link RecipeVar#key() lookup key} of a recipe, or {@code null} if the recipe type has none or it is not set
+     */
+    Object getLookupKey(Recipe<?> recipe) {
+        return this.key == null ? null : this.key.accessor.get(recipe);
+    }
+
+    /**
+     * @return A hash of the variables of this recipe type, their types and serializers, and the packet format, which changes whenever the packet encoding of
+     * the recipe type may have changed
+     */
+    public long getSchemaFingerprint() {
+        StringBuilder builder = new StringBuilder().append(this.options.getPacketFormat());
+
+        for (RecipeFieldCodec field : this.fields) {
+            builder.append(';').append(field.var.name()).append(field.var.required() ? '!' : '?').append(field.codec().describe());
+        }
+
+        return Hashing.murmur3_128().hashString(builder, StandardCharsets.UTF_8).asLong();
     }
 
     @Override
     public T read(Identifier id, JsonObject json) {
-        T t = constructor.apply(id);
+        RecipeReuseCache<T> reuseCache = this.reuseCache;
 
-        if (t instanceof AutoSerializedRecipe asr) {
-            if (asr.id == null) {
-                asr.id = id;
-            }
+        if (reuseCache != null && reuseCache.isActive()) {
+            return reuseCache.read(id, json);
         }
 
-        for (Map.Entry<RecipeVarData, Field> entry : variables.entrySet()) {
-            RecipeVarData var = entry.getKey();
-            Field field = entry.getValue();
+        return this.decode(id, json);
+    }
 
-            try {
-                field.setAccessible(true);
-                JsonElement el;
+    /**
+     * Reads a recipe from JSON, or from the {@link RecipeDiskCache persistent cache} if the JSON has not changed, and compiles it.
+     */
+    T decode(Identifier id, JsonObject json) {
+        RecipeDiskCache<T> diskCache = this.diskCache;
 
-                try {
-                    String[] parts = var.name().split("/");
-                    JsonObject obj = json;
-                    int i = 0;
+        if (diskCache != null && diskCache.isActive()) {
+            return diskCache.read(id, json);
+        }
 
-                    while (i + 1 < parts.length) {
-                        obj = obj.getAsJsonObject(parts[i]);
-                        i++;
-                    }
+        T t = this.readFields(id, json);
+        this.compile(t);
+        return t;
+    }
 
-                    el = obj.get(parts[i]);
-                } catch (Exception e) {
-                    if (var.required()) {
-                        throw new RuntimeException(e);
-                    } else {
-                        continue;
-                    }
-                }
+    /**
+     * Reads a recipe from JSON without {@link AutoSerializedRecipe#compile() compiling} it.
+     */
+    T readFields(Identifier id, JsonObject json) {
+        long start = RecipeStats.ENABLED ? System.nanoTime() : 0;
+        T t = this.construct(id);
+
+        for (RecipeFieldCodec field : this.fields) {
+            try {
+                JsonElement el = field.find(json);
 
                 if (el == null || el.isJsonNull()) {
-                    if (var.required()) {
+                    if (field.var.required()) {
                         throw new RuntimeException("Required element not found");
                     } else {
                         continue;
                     }
                 }
 
-                Class<?> fieldType = field.getType();
+                field.codec().readJson(field.accessor, t, el);
+            } catch (Exception e) {
+                throw new RuntimeException("Error parsing recipe " + id + ", malformed field " + field.fieldName, e);
+            }
+        }
 
-                if (fieldType == List.class || fieldType == Set.class || fieldType == DefaultedList.class) {
-                    Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    Collection collection;
+        if (RecipeStats.ENABLED) {
+            this.stats.jsonReads.increment();
+            this.stats.jsonReadNanos.add(System.nanoTime() - start);
+        }
 
-                    if (fieldType == List.class) {
-                        collection = Lists.newArrayList();
-                    } else if (fieldType == Set.class) {
-                        collection = Sets.newHashSet();
-                    } else {
-                        collection = DefaultedList.of();
-                    }
+        return t;
+    }
 
-                    if (el.isJsonArray()) {
-                        for (JsonElement e : el.getAsJsonArray()) {
-                            collection.add(varSerializer.readJson(e));
-                        }
-                    } else {
-                        collection.add(varSerializer.readJson(el));
-                    }
+    /**
+     * Writes a recipe in the encoding of the {@link RecipeDiskCache persistent cache}, which is only used when the recipe type
+     * {@link #isPacketLossless() is lossless}.
+     */
+    void writeCached(PacketByteBuf buf, T recipe) {
+        for (RecipeFieldCodec field : this.fields) {
+            Object value = field.accessor.get(recipe);
+
+            if (value == null) {
+                buf.writeByte(CACHED_ABSENT);
+            } else {
+                buf.writeByte(CACHED_VALUE);
+                field.codec().writePacket(buf, value, false);
+            }
+        }
+    }
 
-                    field.set(t, collection);
-                } else if (fieldType == Map.class) {
-                    Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
-                    Class<?> stringType = (Class<?>) types[0];
-                    Class<?> genericType = (Class<?>) types[1];
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    Map map = Maps.newHashMap();
-                    Function<String, Object> keySupplier;
-
-                    if (stringType == String.class) {
-                        keySupplier = s -> s;
-                    } else {
-                        Constructor constructor = stringType.getConstructor(String.class);
-                        keySupplier = s -> {
-                            try {
-                                return constructor.newInstance(s);
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
-                        };
-                    }
+    /**
+     * Writes the contents of a recipe so that they can be compared with those of another, such as by {@link RecipeSyncDelta}. Unlike
+     * {@link #write(PacketByteBuf, Recipe)}, {@link LazyVar lazy variables} that have not been decoded are written as the JSON they were read from when their
+     * values' codecs are {@link RecipeVarSerializer#isPacketLossless() lossless}, so that comparing recipes does not decode them.
+     */
+    void writeContents(PacketByteBuf buf, T recipe) {
+        for (RecipeFieldCodec field : this.fields) {
+            Object value = field.accessor.get(recipe);
+
+            if (value == null) {
+                buf.writeByte(CACHED_ABSENT);
+            } else if (value instanceof LazyVar<?> lazy && lazy.rawJson() != null && field.codec() instanceof RecipeVarCodec.OfLazy codec
+                  && codec.isValuePacketLossless()) {
+                buf.writeByte(CACHED_JSON);
+                buf.writeString(lazy.rawJson().toString(), Integer.MAX_VALUE);
+            } else {
+                buf.writeByte(CACHED_VALUE);
+                field.codec().writePacket(buf, value, false);
+            }
+        }
+    }
 
-                    for (Map.Entry<String, JsonElement> me : el.getAsJsonObject().entrySet()) {
-                        map.put(keySupplier.apply(me.getKey()), varSerializer.readJson(me.getValue()));
-                    }
+    /**
+     * @return Whether any variable whose codec is not {@link RecipeVarSerializer#isPacketLossless() lossless} refers to a tag in the given JSON. An
+     * {@code Ingredient} resolves its tags the first time it is used and keeps the result, so such recipes must be decoded again once tags may have changed.
+     */
+    boolean refersToTags(JsonObject json) {
+        for (RecipeFieldCodec field : this.fields) {
+            if (!field.codec().isPacketLossless() && containsTag(field.find(json))) {
+                return true;
+            }
+        }
 
-                    field.set(t, map);
-                } else {
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
-                    field.set(t, varSerializer.readJson(el));
+        return false;
+    }
+
+    private static boolean containsTag(@Nullable JsonElement element) {
+        if (element == null) {
+            return false;
+        }
+
+        if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                if (entry.getKey().equals("tag") || containsTag(entry.getValue())) {
+                    return true;
+                }
+            }
+        } else if (element.isJsonArray()) {
+            for (JsonElement child : element.getAsJsonArray()) {
+                if (containsTag(child)) {
+                    return true;
                 }
-            } catch (Exception e) {
-                throw new RuntimeException("Error parsing recipe " + id + ", malformed field " + field.getName(), e);
             }
         }
 
+        return false;
+    }
+
+    /**
+     * Reads a recipe written by {@link #writeCached(PacketByteBuf, Recipe)}, without {@link AutoSerializedRecipe#compile() compiling} it.
+     */
+    T readCached(Identifier id, PacketByteBuf buf) {
+        T t = this.construct(id);
+
+        for (RecipeFieldCodec field : this.fields) {
+            byte kind = buf.readByte();
+
+            if (kind == CACHED_VALUE) {
+                field.codec().readPacket(field.accessor, t, buf, false);
+            } else if (kind != CACHED_ABSENT) {
+                throw new RuntimeException("Malformed cached recipe " + id + ", unknown kind " + kind + " of field " + field.fieldName);
+            }
+        }
+
+        return t;
+    }
+
+    /**
+     * Constructs an empty recipe, setting its id and resolving its serializer and type up front.
+     */
+    private T construct(Identifier id) {
+        T t = constructor.apply(id);
+
         if (t instanceof AutoSerializedRecipe asr) {
-            asr.compile();
+            if (asr.id == null) {
+                asr.id = id;
+            }
+
+            asr.binding();
         }
 
         return t;
     }
 
-    @Override
-    public JsonObject toJson(T recipe) {
-        JsonObject root = new JsonObject();
+    void compile(T t) {
+        if (t instanceof AutoSerializedRecipe asr) {
+            if (RecipeStats.ENABLED) {
+                long start = System.nanoTime();
+                asr.compile();
+                this.stats.compiles.increment();
+                this.stats.compileNanos.add(System.nanoTime() - start);
+            } else {
+                asr.compile();
+            }
+        }
+    }
 
-        for (Map.Entry<RecipeVarData, Field> entry : variables.entrySet()) {
-            RecipeVarData var = entry.getKey();
-            Field field = entry.getValue();
+    /**
+     * Reads a recipe directly from a stream of JSON tokens, matching property names against the paths of the recipe's variables in a single pass, without
+     * building a {@link JsonObject} tree. Unknown properties are skipped.
+     *
+     * @param reader The reader, positioned at the start of the recipe object. The whole object is consumed.
+     */
+    public T read(Identifier id, JsonReader reader) throws IOException {
+        long start = RecipeStats.ENABLED ? System.nanoTime() : 0;
+        T t = this.construct(id);
+
+        boolean[] present = new boolean[this.fields.length];
+        this.readObject(id, reader, this.trie, t, present);
+
+        for (int i = 0; i < this.fields.length; i++) {
+            if (!present[i] && this.fields[i].var.required()) {
+                throw new RuntimeException("Error parsing recipe " + id + ", malformed field " + this.fields[i].fieldName, new RuntimeException("Required element not found"));
+            }
+        }
 
-            try {
-                field.setAccessible(true);
-                JsonObject obj = root;
-                String[] parts = var.name().split("/");
-                int i = 0;
-
-                while (i + 1 < parts.length) {
-                    JsonObject n = new JsonObject();
-                    obj.add(parts[i], n);
-                    obj = n;
-                    i++;
+        if (RecipeStats.ENABLED) {
+            this.stats.jsonReads.increment();
+            this.stats.jsonReadNanos.add(System.nanoTime() - start);
+        }
+
+        this.compile(t);
+        return t;
+    }
+
+    private void readObject(Identifier id, JsonReader reader, RecipeVarTrie node, T t, boolean[] present) throws IOException {
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            RecipeVarTrie child = node.child(reader.nextName());
+
+            if (child == null) {
+                reader.skipValue();
+            } else if (child.field() != -1) {
+                RecipeFieldCodec field = this.fields[child.field()];
+
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
                 }
 
-                JsonElement el;
-                Class<?> fieldType = field.getType();
+                try {
+                    field.codec().readJson(field.accessor, t, reader);
+                } catch (Exception e) {
+                    throw new RuntimeException("Error parsing recipe " + id + ", malformed field " + field.fieldName, e);
+                }
 
-                if (fieldType == List.class || fieldType == Set.class || fieldType == DefaultedList.class) {
-                    Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-                    RecipeVarSerializer<Object> varSerializer = (RecipeVarSerializer<Object>) AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    Object collection = field.get(recipe);
-                    el = new JsonArray();
+                present[child.field()] = true;
+            } else if (child.hasChildren() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                this.readObject(id, reader, child, t, present);
+            } else {
+                reader.skipValue();
+            }
+        }
 
-                    for (Object v : (Iterable<?>) collection) {
-                        el.getAsJsonArray().add(varSerializer.toJson(v));
-                    }
-                } else if (fieldType == Map.class) {
-                    Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
-                    Class<?> genericType = (Class<?>) types[1];
-                    RecipeVarSerializer<Object> varSerializer = (RecipeVarSerializer<Object>) AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    Map<String, Object> map = (Map) field.get(recipe);
-                    el = new JsonObject();
-
-                    for (Map.Entry<String, Object> me : map.entrySet()) {
-                        el.getAsJsonObject().add(me.getKey(), varSerializer.toJson(me.getValue()));
-                    }
-                } else {
-                    RecipeVarSerializer<Object> varSerializer = (RecipeVarSerializer<Object>) AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
-                    el = varSerializer.toJson(field.get(recipe));
+        reader.endObject();
+    }
+
+    @Override
+    public JsonObject toJson(T recipe) {
+        JsonObject root = new JsonObject();
+
+        for (RecipeFieldCodec field : this.fields) {
+            try {
+                Object value = field.accessor.get(recipe);
+
+                if (value == null && !field.var.required()) {
+                    continue;
                 }
 
-                obj.add(var.name(), el);
+                field.put(root, field.codec().toJson(value));
             } catch (Exception e) {
-                throw new RuntimeException("Error serializing recipe " + recipe.getId() + ", malformed field " + field.getName(), e);
+                throw new RuntimeException("Error serializing recipe " + recipe.getId() + ", malformed field " + field.fieldName, e);
             }
         }
 
@@ -280,119 +508,208 @@ public class AutoRecipeSerializer<T extends Recipe<?>> implements QuiltRecipeSer
 
     @Override
     public T read(Identifier id, PacketByteBuf buf) {
-        T t = constructor.apply(id);
+        long start = RecipeStats.ENABLED ? System.nanoTime() : 0;
+        int startIndex = RecipeStats.ENABLED ? buf.readerIndex() : 0;
+        T t = this.construct(id);
+
+        if (this.options.getPacketFormat() == RecipePacketFormat.TAGGED) {
+            this.readTagged(t, buf);
+        } else {
+            this.readMasked(t, buf, this.options.getPacketFormat() == RecipePacketFormat.COMPACT);
+        }
 
-        if (t instanceof AutoSerializedRecipe asr) {
-            if (asr.id == null) {
-                asr.id = id;
-            }
+        if (RecipeStats.ENABLED) {
+            this.stats.packetReads.increment();
+            this.stats.packetReadNanos.add(System.nanoTime() - start);
+            this.stats.packetReadBytes.add(buf.readerIndex() - startIndex);
         }
 
-        for (Map.Entry<RecipeVarData, Field> entry : variables.entrySet()) {
-            try {
-                Field field = entry.getValue();
-                Class<?> fieldType = field.getType();
-
-                if (fieldType == List.class) {
-                    Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    field.set(t, readCollection(buf, i -> new ArrayList(i), varSerializer::readPacket));
-                } else if (fieldType == Set.class) {
-                    Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    field.set(t, readCollection(buf, i -> new HashSet(), varSerializer::readPacket));
-                } else if (fieldType == DefaultedList.class) {
-                    Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    field.set(t, readCollection(buf, i -> DefaultedList.of(), varSerializer::readPacket));
-                } else if (fieldType == Map.class) {
-                    Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
-                    Class<?> stringType = (Class<?>) types[0];
-                    Class<?> genericType = (Class<?>) types[1];
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    Function<String, Object> keySupplier;
-
-                    if (stringType == String.class) {
-                        keySupplier = s -> s;
-                    } else {
-                        Constructor constructor = stringType.getConstructor(String.class);
-                        keySupplier = s -> {
-                            try {
-                                return constructor.newInstance(s);
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
-                        };
-                    }
+        this.compile(t);
+        return t;
+    }
 
-                    field.set(t, readMap(buf, Maps::newHashMapWithExpectedSize, b -> keySupplier.apply(b.readString()), varSerializer::readPacket));
-                } else {
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
-                    field.set(t, varSerializer.readPacket(buf));
+    @Override
+    public void write(PacketByteBuf buf, T recipe) {
+        long start = RecipeStats.ENABLED ? System.nanoTime() : 0;
+        int startIndex = RecipeStats.ENABLED ? buf.writerIndex() : 0;
+
+        if (this.options.getPacketFormat() == RecipePacketFormat.TAGGED) {
+            this.writeTagged(buf, recipe);
+        } else {
+            this.writeMasked(buf, recipe, this.options.getPacketFormat() == RecipePacketFormat.COMPACT);
+        }
+
+        if (RecipeStats.ENABLED) {
+            this.stats.packetWrites.increment();
+            this.stats.packetWriteNanos.add(System.nanoTime() - start);
+            this.stats.packetWriteBytes.add(buf.writerIndex() - startIndex);
+        }
+    }
+
+    /**
+     * Reads a recipe in the {@link RecipePacketFormat#POSITIONAL positional} or {@link RecipePacketFormat#COMPACT compact} format, which both start with a
+     * bitmask of the optional variables present.
+     */
+    private void readMasked(T t, PacketByteBuf buf, boolean compact) {
+        int mask = buf.readerIndex();
+        buf.skipBytes((this.nullableCount + 7) / 8);
+        int bit = 0;
+
+        for (RecipeFieldCodec field : this.fields) {
+            try {
+                if (field.nullable && (buf.getByte(mask + (bit >> 3)) & (1 << (bit++ & 7))) == 0) {
+                    continue;
                 }
+
+                field.codec().readPacket(field.accessor, t, buf, compact);
             } catch (Exception e) {
-                throw new RuntimeException("Error parsing packet", e);
+                throw new RuntimeException("Error parsing packet, malformed field " + field.fieldName, e);
             }
         }
+    }
 
-        if (t instanceof AutoSerializedRecipe asr) {
-            asr.compile();
+    private void writeMasked(PacketByteBuf buf, T recipe, boolean compact) {
+        int bits = 0;
+        int bit = 0;
+
+        for (RecipeFieldCodec field : this.fields) {
+            if (field.nullable) {
+                if (field.accessor.get(recipe) != null) {
+                    bits |= 1 << (bit & 7);
+                }
+
+                if ((++bit & 7) == 0) {
+                    buf.writeByte(bits);
+                    bits = 0;
+                }
+            }
         }
 
-        return t;
-    }
+        if ((bit & 7) != 0) {
+            buf.writeByte(bits);
+        }
 
-    @Override
-    public void write(PacketByteBuf buf, T recipe) {
-        for (Map.Entry<RecipeVarData, Field> entry : variables.entrySet()) {
+        for (RecipeFieldCodec field : this.fields) {
             try {
-                Field field = entry.getValue();
-                Class<?> fieldType = field.getType();
-                if (fieldType == List.class || fieldType == Set.class || fieldType == DefaultedList.class) {
-                    Class<?> genericType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-                    RecipeVarSerializer varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    Collection list = (Collection) field.get(recipe);
-                    writeCollection(buf, list, varSerializer::writePacket);
-                } else if (fieldType == Map.class) {
-                    Type[] types = ((ParameterizedType) field.getGenericType()).getActualTypeArguments();
-                    Class<?> genericType = (Class<?>) types[1];
-                    RecipeVarSerializer<?> varSerializer = AutoRecipeRegistry.getVariableSerializer(namespace, genericType);
-                    writeMap(buf, (Map) field.get(recipe), (b, k) -> b.writeString(k.toString()), varSerializer::writePacket);
+                if (field.nullable) {
+                    Object value = field.accessor.get(recipe);
+
+                    if (value != null) {
+                        field.codec().writePacket(buf, value, compact);
+                    }
                 } else {
-                    RecipeVarSerializer<Object> varSerializer = (RecipeVarSerializer<Object>) AutoRecipeRegistry.getVariableSerializer(namespace, fieldType);
-                    varSerializer.writePacket(buf, field.get(recipe));
+                    field.codec().writePacket(buf, field.accessor, recipe, compact);
                 }
             } catch (Exception e) {
-                throw new RuntimeException("Error writing packet", e);
+                throw new RuntimeException("Error writing packet, malformed field " + field.fieldName, e);
             }
         }
     }
 
-    private <G> void writeCollection(PacketByteBuf buf, Collection<G> collection, BiConsumer<PacketByteBuf, G> entrySerializer) {
-        buf.writeVarInt(collection.size());
+    private void readTagged(T t, PacketByteBuf buf) {
+        Map<String, RecipeFieldCodec> tags = this.tags();
+        Set<RecipeFieldCodec> read = new HashSet<>();
+        int count = buf.readVarInt();
+        RecipeSyncContext context = RecipeSyncContext.suspend();
+
+        try {
+            for (int i = 0; i < count; i++) {
+                String tag = RecipeSyncContext.readString(context, buf);
+                int length = buf.readVarInt();
+                RecipeFieldCodec field = tags.get(tag);
+
+                if (field == null) {
+                    buf.skipBytes(length);
+                    continue;
+                }
+
+                PacketByteBuf value = new PacketByteBuf(buf.readSlice(length));
+
+                try {
+                    field.codec().readPacket(field.accessor, t, value, true);
+                } catch (Exception e) {
+                    throw new RuntimeException("Error parsing packet, malformed field " + field.fieldName, e);
+                }
 
-        for (G val : collection) {
-            entrySerializer.accept(buf, val);
+                if (value.readableBytes() != 0) {
+                    throw new RuntimeException("Error parsing packet, field " + field.fieldName + " has " + value.readableBytes() + " unread bytes");
+                }
+
+                read.add(field);
+            }
+        } finally {
+            RecipeSyncContext.resume(context);
+        }
+
+        for (RecipeFieldCodec field : this.fields) {
+            if (!field.nullable && !read.contains(field)) {
+                throw new RuntimeException("Error parsing packet, missing field " + field.fieldName);
+            }
         }
     }
 
-    private <G, C extends Collection<G>> C readCollection(PacketByteBuf buf, IntFunction<C> collectionFactory, Function<PacketByteBuf, G> entryParser) {
-        int i = buf.readVarInt();
-        C collection = collectionFactory.apply(i);
+    private void writeTagged(PacketByteBuf buf, T recipe) {
+        int count = 0;
 
-        for (int j = 0; j < i; j++) {
-            collection.add(entryParser.apply(buf));
+        for (RecipeFieldCodec field : this.fields) {
+            if (!field.nullable || field.accessor.get(recipe) != null) {
+                count++;
+            }
         }
 
-        return collection;
+        buf.writeVarInt(count);
+        PacketByteBuf value = new PacketByteBuf(Unpooled.buffer());
+        RecipeSyncContext context = RecipeSyncContext.suspend();
+
+        try {
+            for (RecipeFieldCodec field : this.fields) {
+                value.clear();
+
+                try {
+                    if (field.nullable) {
+                        Object v = field.accessor.get(recipe);
+
+                        if (v == null) {
+                            continue;
+                        }
+
+                        field.codec().writePacket(value, v, true);
+                    } else {
+                        field.codec().writePacket(value, field.accessor, recipe, true);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException("Error writing packet, malformed field " + field.fieldName, e);
+                }
+
+                RecipeSyncContext.writeString(context, buf, field.tag());
+                buf.writeVarInt(value.readableBytes());
+                buf.writeBytes(value);
+            }
+        } finally {
+            RecipeSyncContext.resume(context);
+        }
     }
 
-    private <K, V> void writeMap(PacketByteBuf buf, Map<K, V> map, BiConsumer<PacketByteBuf, K> keySerializer, BiConsumer<PacketByteBuf, V> valueSerializer) {
-        buf.writeVarInt(map.size());
-        map.forEach((key, value) -> {
-            keySerializer.accept(buf, key);
-            valueSerializer.accept(buf, value);
-        });
+    /**
+     * @return The variables of this recipe type by their {@link RecipeFieldCodec#tag() tag}
+     */
+    private Map<String, RecipeFieldCodec> tags() {
+        TaggedFields tags = this.tags;
+        int epoch = AutoRecipeRegistry.getVariableSerializerEpoch();
+
+        // The tags change with the codecs, when a variable serializer is registered
+        if (tags == null || tags.epoch() != epoch) {
+            Map<String, RecipeFieldCodec> map = new HashMap<>();
+
+            for (RecipeFieldCodec field : this.fields) {
+                map.put(field.tag(), field);
+            }
+
+            tags = new TaggedFields(Map.copyOf(map), epoch);
+            this.tags = tags;
+        }
+
+        return tags.fields();
     }
 
     public <K, V, M extends Map<K, V>> M readMap(PacketByteBuf buf, IntFunction<M> mapFactory, Function<PacketByteBuf, K> keyParser, Function<PacketByteBuf, V> valueParser) {
@@ -408,5 +725,64 @@ public class AutoRecipeSerializer<T extends Recipe<?>> implements QuiltRecipeSer
         return map;
     }
 
-    public record RecipeVarData(String name, boolean required) {}
+    /**
+     * @param epoch The {@link AutoRecipeRegistry#getVariableSerializerEpoch() variable serializer epoch} the tags were resolved in
+     */
+    private record TaggedFields(Map<String, RecipeFieldCodec> fields, int epoch) {}
+
+    /**
+     * @param key Whether the variable is the {@link RecipeVar#key() lookup key} of the recipe type
+     * @param shared Whether decoded values of the variable are {@link RecipeVar#shared() shared} between recipes
+     * @param immutable Whether the variable is decoded into an {@link RecipeVar#immutable() immutable} collection or map
+     */
+    public record RecipeVarData(String name, boolean required, boolean key, boolean shared, boolean immutable) {
+
+        public RecipeVarData(String name, boolean required) {
+            this(name, required, false, false, false);
+        }
+
+        /**
+         * @return A builder for a required variable with none of the other flags set, matching the defaults of {@link RecipeVar}
+         */
+        public static Builder builder(String name) {
+            return new Builder(name);
+        }
+
+        public static final class Builder {
+
+            private final String name;
+            private boolean required = true;
+            private boolean key = false;
+            private boolean shared = false;
+            private boolean immutable = false;
+
+            private Builder(String name) {
+                this.name = name;
+            }
+
+            public Builder required(boolean required) {
+                this.required = required;
+                return this;
+            }
+
+            public Builder key(boolean key) {
+                this.key = key;
+                return this;
+            }
+
+            public Builder shared(boolean shared) {
+                this.shared = shared;
+                return this;
+            }
+
+            public Builder immutable(boolean immutable) {
+                this.immutable = immutable;
+                return this;
+            }
+
+            public RecipeVarData build() {
+                return new RecipeVarData(this.name, this.required, this.key, this.shared, this.immutable);
+            }
+        }
+    }
 }
@@ -38,6 +38,10 @@ import net.minecraft.util.Identifier;
 public abstract class AutoSerializedRecipe<T extends Inventory> implements Recipe<T> {
 
     public Identifier id;
+    /**
+     * The serializer and type of this recipe's class, resolved once so {@link #getSerializer()} and {@link #getType()} are a field load.
+     */
+    private AutoRecipeRegistry.Binding binding;
 
     /**
      * Called after the recipe is parsed from JSON, to finalize values.
@@ -57,11 +61,26 @@ public abstract class AutoSerializedRecipe<T extends Inventory> implements Recip
 
     @Override
     public RecipeSerializer<?> getSerializer() {
-        return AutoRecipeRegistry.getRecipeSerializer(this.getClass());
+        return this.binding().serializer();
     }
 
     @Override
     public RecipeType<?> getType() {
-        return AutoRecipeRegistry.getRecipeType(this.getClass());
+        return this.binding().type();
+    }
+
+    AutoRecipeRegistry.Binding binding() {
+        AutoRecipeRegistry.Binding binding = this.binding;
+
+        if (binding == null) {
+            binding = AutoRecipeRegistry.getBinding(this.getClass());
+
+            // The class may not have been registered yet, in which case it's looked up again next time
+            if (binding.serializer() != null) {
+                this.binding = binding;
+            }
+        }
+
+        return binding;
     }
 }
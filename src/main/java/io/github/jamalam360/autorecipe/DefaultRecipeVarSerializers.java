@@ -24,9 +24,16 @@
 
 package io.github.jamalam360.autorecipe;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import net.minecraft.block.Block;
@@ -42,74 +49,575 @@ import org.jetbrains.annotations.ApiStatus.Internal;
 public class DefaultRecipeVarSerializers {
 
     protected static void registerDefaultSerializers() {
-        AutoRecipeRegistry.registerGlobalVariableSerializer(boolean.class, newSerializer(
-              JsonElement::getAsBoolean,
-              JsonPrimitive::new,
-              PacketByteBuf::readBoolean,
-              PacketByteBuf::writeBoolean
-        ));
-        AutoRecipeRegistry.VAR_SERIALIZERS.put(Boolean.class, AutoRecipeRegistry.VAR_SERIALIZERS.get(boolean.class));
+        AutoRecipeRegistry.registerGlobalVariableSerializer(boolean.class, new RecipeVarSerializer.OfBoolean() {
+            @Override
+            public boolean readJsonBoolean(JsonElement element) {
+                return element.getAsBoolean();
+            }
+
+            @Override
+            public boolean readJsonBoolean(JsonReader reader) throws IOException {
+                return reader.nextBoolean();
+            }
+
+            @Override
+            public JsonElement toJson(Boolean value) {
+                return new JsonPrimitive(value);
+            }
+
+            @Override
+            public boolean readPacketBoolean(PacketByteBuf buf) {
+                return buf.readBoolean();
+            }
+
+            @Override
+            public void writePacketBoolean(PacketByteBuf buf, boolean value) {
+                buf.writeBoolean(value);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
+        AutoRecipeRegistry.registerGlobalVariableSerializerAlias(Boolean.class, boolean.class);
 
         AutoRecipeRegistry.registerGlobalVariableSerializer(byte.class, newSerializer(
               JsonElement::getAsByte,
               JsonPrimitive::new,
               PacketByteBuf::readByte,
-              (buf, value) -> buf.writeByte(value)
+              (buf, value) -> buf.writeByte(value),
+              buf -> (byte) readZigZagVarInt(buf),
+              (buf, value) -> writeZigZagVarInt(buf, value)
         ));
-        AutoRecipeRegistry.VAR_SERIALIZERS.put(Byte.class, AutoRecipeRegistry.VAR_SERIALIZERS.get(byte.class));
+        AutoRecipeRegistry.registerGlobalVariableSerializerAlias(Byte.class, byte.class);
 
         AutoRecipeRegistry.registerGlobalVariableSerializer(short.class, newSerializer(
               JsonElement::getAsShort,
               JsonPrimitive::new,
               PacketByteBuf::readShort,
-              (buf, value) -> buf.writeShort(value)
+              (buf, value) -> buf.writeShort(value),
+              buf -> (short) readZigZagVarInt(buf),
+              (buf, value) -> writeZigZagVarInt(buf, value)
         ));
-        AutoRecipeRegistry.VAR_SERIALIZERS.put(Short.class, AutoRecipeRegistry.VAR_SERIALIZERS.get(short.class));
+        AutoRecipeRegistry.registerGlobalVariableSerializerAlias(Short.class, short.class);
 
-        AutoRecipeRegistry.registerGlobalVariableSerializer(int.class, newSerializer(
-              JsonElement::getAsInt,
-              JsonPrimitive::new,
-              PacketByteBuf::readInt,
-              PacketByteBuf::writeInt
-        ));
-        AutoRecipeRegistry.VAR_SERIALIZERS.put(Integer.class, AutoRecipeRegistry.VAR_SERIALIZERS.get(int.class));
+        AutoRecipeRegistry.registerGlobalVariableSerializer(int.class, new RecipeVarSerializer.OfInt() {
+            @Override
+            public int readJsonInt(JsonElement element) {
+                return element.getAsInt();
+            }
 
-        AutoRecipeRegistry.registerGlobalVariableSerializer(long.class, newSerializer(
-              JsonElement::getAsLong,
-              JsonPrimitive::new,
-              PacketByteBuf::readLong,
-              PacketByteBuf::writeLong
-        ));
-        AutoRecipeRegistry.VAR_SERIALIZERS.put(Long.class, AutoRecipeRegistry.VAR_SERIALIZERS.get(long.class));
+            @Override
+            public int readJsonInt(JsonReader reader) throws IOException {
+                return reader.nextInt();
+            }
 
-        AutoRecipeRegistry.registerGlobalVariableSerializer(float.class, newSerializer(
-              JsonElement::getAsFloat,
-              JsonPrimitive::new,
-              PacketByteBuf::readFloat,
-              PacketByteBuf::writeFloat
-        ));
-        AutoRecipeRegistry.VAR_SERIALIZERS.put(Float.class, AutoRecipeRegistry.VAR_SERIALIZERS.get(float.class));
+            @Override
+            public JsonElement toJson(Integer value) {
+                return new JsonPrimitive(value);
+            }
 
-        AutoRecipeRegistry.registerGlobalVariableSerializer(double.class, newSerializer(
-              JsonElement::getAsDouble,
-              JsonPrimitive::new,
-              PacketByteBuf::readDouble,
-              PacketByteBuf::writeDouble
-        ));
-        AutoRecipeRegistry.VAR_SERIALIZERS.put(Double.class, AutoRecipeRegistry.VAR_SERIALIZERS.get(double.class));
+            @Override
+            public int readPacketInt(PacketByteBuf buf) {
+                return buf.readInt();
+            }
+
+            @Override
+            public void writePacketInt(PacketByteBuf buf, int value) {
+                buf.writeInt(value);
+            }
+
+            @Override
+            public int readPacketIntCompact(PacketByteBuf buf) {
+                return readZigZagVarInt(buf);
+            }
+
+            @Override
+            public void writePacketIntCompact(PacketByteBuf buf, int value) {
+                writeZigZagVarInt(buf, value);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
+        AutoRecipeRegistry.registerGlobalVariableSerializerAlias(Integer.class, int.class);
+
+        AutoRecipeRegistry.registerGlobalVariableSerializer(long.class, new RecipeVarSerializer.OfLong() {
+            @Override
+            public long readJsonLong(JsonElement element) {
+                return element.getAsLong();
+            }
+
+            @Override
+            public long readJsonLong(JsonReader reader) throws IOException {
+                return reader.nextLong();
+            }
+
+            @Override
+            public JsonElement toJson(Long value) {
+                return new JsonPrimitive(value);
+            }
+
+            @Override
+            public long readPacketLong(PacketByteBuf buf) {
+                return buf.readLong();
+            }
+
+            @Override
+            public void writePacketLong(PacketByteBuf buf, long value) {
+                buf.writeLong(value);
+            }
+
+            @Override
+            public long readPacketLongCompact(PacketByteBuf buf) {
+                long zigzag = buf.readVarLong();
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+
+            @Override
+            public void writePacketLongCompact(PacketByteBuf buf, long value) {
+                buf.writeVarLong((value << 1) ^ (value >> 63));
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
+        AutoRecipeRegistry.registerGlobalVariableSerializerAlias(Long.class, long.class);
+
+        AutoRecipeRegistry.registerGlobalVariableSerializer(float.class, new RecipeVarSerializer.OfFloat() {
+            @Override
+            public float readJsonFloat(JsonElement element) {
+                return element.getAsFloat();
+            }
+
+            @Override
+            public float readJsonFloat(JsonReader reader) throws IOException {
+                return (float) reader.nextDouble();
+            }
+
+            @Override
+            public JsonElement toJson(Float value) {
+                return new JsonPrimitive(value);
+            }
+
+            @Override
+            public float readPacketFloat(PacketByteBuf buf) {
+                return buf.readFloat();
+            }
+
+            @Override
+            public void writePacketFloat(PacketByteBuf buf, float value) {
+                buf.writeFloat(value);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
+        AutoRecipeRegistry.registerGlobalVariableSerializerAlias(Float.class, float.class);
+
+        AutoRecipeRegistry.registerGlobalVariableSerializer(double.class, new RecipeVarSerializer.OfDouble() {
+            @Override
+            public double readJsonDouble(JsonElement element) {
+                return element.getAsDouble();
+            }
+
+            @Override
+            public double readJsonDouble(JsonReader reader) throws IOException {
+                return reader.nextDouble();
+            }
+
+            @Override
+            public JsonElement toJson(Double value) {
+                return new JsonPrimitive(value);
+            }
+
+            @Override
+            public double readPacketDouble(PacketByteBuf buf) {
+                return buf.readDouble();
+            }
+
+            @Override
+            public void writePacketDouble(PacketByteBuf buf, double value) {
+                buf.writeDouble(value);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
+        AutoRecipeRegistry.registerGlobalVariableSerializerAlias(Double.class, double.class);
+
+        AutoRecipeRegistry.registerGlobalVariableSerializer(int[].class, new RecipeVarSerializer<>() {
+            @Override
+            public int[] readJson(JsonElement element) {
+                if (!element.isJsonArray()) {
+                    return new int[]{element.getAsInt()};
+                }
+
+                JsonArray array = element.getAsJsonArray();
+                int[] values = new int[array.size()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = array.get(i).getAsInt();
+                }
+
+                return values;
+            }
+
+            @Override
+            public int[] readJson(JsonReader reader) throws IOException {
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    return new int[]{reader.nextInt()};
+                }
+
+                int[] values = new int[8];
+                int size = 0;
+                reader.beginArray();
+
+                while (reader.hasNext()) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+
+                    values[size++] = reader.nextInt();
+                }
+
+                reader.endArray();
+                return Arrays.copyOf(values, size);
+            }
+
+            @Override
+            public JsonElement toJson(int[] value) {
+                JsonArray array = new JsonArray(value.length);
+
+                for (int v : value) {
+                    array.add(v);
+                }
+
+                return array;
+            }
+
+            @Override
+            public int[] readPacket(PacketByteBuf buf) {
+                int[] values = new int[buf.readVarInt()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = buf.readInt();
+                }
+
+                return values;
+            }
+
+            @Override
+            public void writePacket(PacketByteBuf buf, int[] value) {
+                buf.writeVarInt(value.length);
+
+                for (int v : value) {
+                    buf.writeInt(v);
+                }
+            }
+
+            @Override
+            public int[] readPacketCompact(PacketByteBuf buf) {
+                int[] values = new int[buf.readVarInt()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readZigZagVarInt(buf);
+                }
+
+                return values;
+            }
+
+            @Override
+            public void writePacketCompact(PacketByteBuf buf, int[] value) {
+                buf.writeVarInt(value.length);
+
+                for (int v : value) {
+                    writeZigZagVarInt(buf, v);
+                }
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
+
+        AutoRecipeRegistry.registerGlobalVariableSerializer(float[].class, new RecipeVarSerializer<>() {
+            @Override
+            public float[] readJson(JsonElement element) {
+                if (!element.isJsonArray()) {
+                    return new float[]{element.getAsFloat()};
+                }
+
+                JsonArray array = element.getAsJsonArray();
+                float[] values = new float[array.size()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = array.get(i).getAsFloat();
+                }
+
+                return values;
+            }
+
+            @Override
+            public float[] readJson(JsonReader reader) throws IOException {
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    return new float[]{(float) reader.nextDouble()};
+                }
+
+                float[] values = new float[8];
+                int size = 0;
+                reader.beginArray();
+
+                while (reader.hasNext()) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+
+                    values[size++] = (float) reader.nextDouble();
+                }
+
+                reader.endArray();
+                return Arrays.copyOf(values, size);
+            }
+
+            @Override
+            public JsonElement toJson(float[] value) {
+                JsonArray array = new JsonArray(value.length);
+
+                for (float v : value) {
+                    array.add(v);
+                }
+
+                return array;
+            }
+
+            @Override
+            public float[] readPacket(PacketByteBuf buf) {
+                float[] values = new float[buf.readVarInt()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = buf.readFloat();
+                }
+
+                return values;
+            }
+
+            @Override
+            public void writePacket(PacketByteBuf buf, float[] value) {
+                buf.writeVarInt(value.length);
+
+                for (float v : value) {
+                    buf.writeFloat(v);
+                }
+            }
+
+            // Arrays of whole numbers, such as counts or multipliers, are written as variable length integers, and any other array as is
+            @Override
+            public float[] readPacketCompact(PacketByteBuf buf) {
+                float[] values = new float[buf.readVarInt()];
+                boolean integral = buf.readBoolean();
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = integral ? readZigZagVarInt(buf) : buf.readFloat();
+                }
+
+                return values;
+            }
+
+            @Override
+            public void writePacketCompact(PacketByteBuf buf, float[] value) {
+                buf.writeVarInt(value.length);
+                boolean integral = isIntegral(value);
+                buf.writeBoolean(integral);
+
+                for (float v : value) {
+                    if (integral) {
+                        writeZigZagVarInt(buf, (int) v);
+                    } else {
+                        buf.writeFloat(v);
+                    }
+                }
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
+
+        AutoRecipeRegistry.registerGlobalVariableSerializer(double[].class, new RecipeVarSerializer<>() {
+            @Override
+            public double[] readJson(JsonElement element) {
+                if (!element.isJsonArray()) {
+                    return new double[]{element.getAsDouble()};
+                }
+
+                JsonArray array = element.getAsJsonArray();
+                double[] values = new double[array.size()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = array.get(i).getAsDouble();
+                }
+
+                return values;
+            }
+
+            @Override
+            public double[] readJson(JsonReader reader) throws IOException {
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    return new double[]{reader.nextDouble()};
+                }
+
+                double[] values = new double[8];
+                int size = 0;
+                reader.beginArray();
+
+                while (reader.hasNext()) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+
+                    values[size++] = reader.nextDouble();
+                }
+
+                reader.endArray();
+                return Arrays.copyOf(values, size);
+            }
+
+            @Override
+            public JsonElement toJson(double[] value) {
+                JsonArray array = new JsonArray(value.length);
+
+                for (double v : value) {
+                    array.add(v);
+                }
+
+                return array;
+            }
+
+            @Override
+            public double[] readPacket(PacketByteBuf buf) {
+                double[] values = new double[buf.readVarInt()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = buf.readDouble();
+                }
+
+                return values;
+            }
+
+            @Override
+            public void writePacket(PacketByteBuf buf, double[] value) {
+                buf.writeVarInt(value.length);
+
+                for (double v : value) {
+                    buf.writeDouble(v);
+                }
+            }
+
+            @Override
+            public double[] readPacketCompact(PacketByteBuf buf) {
+                double[] values = new double[buf.readVarInt()];
+                boolean integral = buf.readBoolean();
+
+                for (int i = 0; i < values.length; i++) {
+                    if (integral) {
+                        long zigzag = buf.readVarLong();
+                        values[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+                    } else {
+                        values[i] = buf.readDouble();
+                    }
+                }
+
+                return values;
+            }
+
+            @Override
+            public void writePacketCompact(PacketByteBuf buf, double[] value) {
+                buf.writeVarInt(value.length);
+                boolean integral = isIntegral(value);
+                buf.writeBoolean(integral);
+
+                for (double v : value) {
+                    if (integral) {
+                        long l = (long) v;
+                        buf.writeVarLong((l << 1) ^ (l >> 63));
+                    } else {
+                        buf.writeDouble(v);
+                    }
+                }
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return true;
+            }
+        });
 
         AutoRecipeRegistry.registerGlobalVariableSerializer(String.class, newSerializer(
               JsonElement::getAsString,
+              JsonReader::nextString,
               JsonPrimitive::new,
-              PacketByteBuf::readString,
-              PacketByteBuf::writeString
+              RecipeSyncContext::readString,
+              RecipeSyncContext::writeString
         ));
 
         AutoRecipeRegistry.registerGlobalVariableSerializer(Identifier.class, newSerializer(
               element -> new Identifier(element.getAsString()),
+              reader -> new Identifier(reader.nextString()),
               id -> new JsonPrimitive(id.toString()),
-              PacketByteBuf::readIdentifier,
-              PacketByteBuf::writeIdentifier
+              RecipeSyncContext::readIdentifier,
+              RecipeSyncContext::writeIdentifier
         ));
 
         AutoRecipeRegistry.registerGlobalVariableSerializer(ItemStack.class, newSerializer(
@@ -124,6 +632,31 @@ public class DefaultRecipeVarSerializers {
                       return new ItemStack(Registries.ITEM.get(id), count);
                   }
               },
+              reader -> {
+                  if (reader.peek() == JsonToken.STRING) {
+                      return new ItemStack(Registries.ITEM.get(new Identifier(reader.nextString())));
+                  }
+
+                  Identifier id = null;
+                  int count = 1;
+                  reader.beginObject();
+
+                  while (reader.hasNext()) {
+                      switch (reader.nextName()) {
+                          case "item" -> id = new Identifier(reader.nextString());
+                          case "count" -> count = reader.nextInt();
+                          default -> reader.skipValue();
+                      }
+                  }
+
+                  reader.endObject();
+
+                  if (id == null) {
+                      throw new JsonSyntaxException("Missing item, expected to find a string");
+                  }
+
+                  return new ItemStack(Registries.ITEM.get(id), count);
+              },
               stack -> {
                   JsonObject obj = new JsonObject();
                   obj.add("item", new JsonPrimitive(Registries.ITEM.getId(stack.getItem()).toString()));
@@ -131,32 +664,76 @@ public class DefaultRecipeVarSerializers {
                   return obj;
               },
               PacketByteBuf::readItemStack,
-              PacketByteBuf::writeItemStack
+              PacketByteBuf::writeItemStack,
+              PacketByteBuf::readItemStack,
+              PacketByteBuf::writeItemStack,
+              // The count is written as a byte, and NBT is dropped for items that do not sync it
+              false
         ));
 
         AutoRecipeRegistry.registerGlobalVariableSerializer(Ingredient.class, newSerializer(
               Ingredient::fromJson,
+              reader -> Ingredient.fromJson(JsonParser.parseReader(reader)),
               Ingredient::toJson,
               Ingredient::fromPacket,
-              (buf, value) -> value.write(buf)
+              (buf, value) -> value.write(buf),
+              Ingredient::fromPacket,
+              (buf, value) -> value.write(buf),
+              // Tags are resolved to the items they contain when written
+              false
         ));
 
         AutoRecipeRegistry.registerGlobalVariableSerializer(Block.class, newSerializer(
               element -> Registries.BLOCK.get(new Identifier(element.getAsString())),
+              reader -> Registries.BLOCK.get(new Identifier(reader.nextString())),
               block -> new JsonPrimitive(Registries.BLOCK.getId(block).toString()),
-              buf -> Registries.BLOCK.get(buf.readIdentifier()),
-              (buf, value) -> buf.writeIdentifier(Registries.BLOCK.getId(value))
+              buf -> Registries.BLOCK.get(RecipeSyncContext.readIdentifier(buf)),
+              (buf, value) -> RecipeSyncContext.writeIdentifier(buf, Registries.BLOCK.getId(value))
         ));
     }
 
     private static <T> RecipeVarSerializer<T> newSerializer(Function<JsonElement, T> readJsonFunction,
           Function<T, JsonElement> toJsonFunction,
           Function<PacketByteBuf, T> readPacketFunction, BiConsumer<PacketByteBuf, T> writePacketConsumer) {
+        return newSerializer(readJsonFunction, reader -> readJsonFunction.apply(JsonParser.parseReader(reader)), toJsonFunction, readPacketFunction,
+              writePacketConsumer);
+    }
+
+    /**
+     * Creates a serializer with a separate encoding for the {@link RecipePacketFormat#COMPACT compact} packet format.
+     */
+    private static <T> RecipeVarSerializer<T> newSerializer(Function<JsonElement, T> readJsonFunction,
+          Function<T, JsonElement> toJsonFunction,
+          Function<PacketByteBuf, T> readPacketFunction, BiConsumer<PacketByteBuf, T> writePacketConsumer,
+          Function<PacketByteBuf, T> readPacketCompactFunction, BiConsumer<PacketByteBuf, T> writePacketCompactConsumer) {
+        return newSerializer(readJsonFunction, reader -> readJsonFunction.apply(JsonParser.parseReader(reader)), toJsonFunction, readPacketFunction,
+              writePacketConsumer, readPacketCompactFunction, writePacketCompactConsumer, true);
+    }
+
+    private static <T> RecipeVarSerializer<T> newSerializer(Function<JsonElement, T> readJsonFunction, JsonStreamFunction<T> readJsonStreamFunction,
+          Function<T, JsonElement> toJsonFunction,
+          Function<PacketByteBuf, T> readPacketFunction, BiConsumer<PacketByteBuf, T> writePacketConsumer) {
+        return newSerializer(readJsonFunction, readJsonStreamFunction, toJsonFunction, readPacketFunction, writePacketConsumer, readPacketFunction,
+              writePacketConsumer, true);
+    }
+
+    /**
+     * @param packetLossless Whether the packet encoding is {@link RecipeVarSerializer#isPacketLossless() lossless}
+     */
+    private static <T> RecipeVarSerializer<T> newSerializer(Function<JsonElement, T> readJsonFunction, JsonStreamFunction<T> readJsonStreamFunction,
+          Function<T, JsonElement> toJsonFunction,
+          Function<PacketByteBuf, T> readPacketFunction, BiConsumer<PacketByteBuf, T> writePacketConsumer,
+          Function<PacketByteBuf, T> readPacketCompactFunction, BiConsumer<PacketByteBuf, T> writePacketCompactConsumer, boolean packetLossless) {
         return new RecipeVarSerializer<>() {
             public T readJson(JsonElement element) {
                 return readJsonFunction.apply(element);
             }
 
+            @Override
+            public T readJson(JsonReader reader) throws IOException {
+                return readJsonStreamFunction.apply(reader);
+            }
+
             @Override
             public JsonElement toJson(T value) {
                 return toJsonFunction.apply(value);
@@ -170,6 +747,66 @@ public class DefaultRecipeVarSerializers {
                 writePacketConsumer.accept(buf, value);
             }
 
+            @Override
+            public T readPacketCompact(PacketByteBuf buf) {
+                return readPacketCompactFunction.apply(buf);
+            }
+
+            @Override
+            public void writePacketCompact(PacketByteBuf buf, T value) {
+                writePacketCompactConsumer.accept(buf, value);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
+            @Override
+            public boolean isPacketLossless() {
+                return packetLossless;
+            }
         };
     }
+
+    private static int readZigZagVarInt(PacketByteBuf buf) {
+        int zigzag = buf.readVarInt();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void writeZigZagVarInt(PacketByteBuf buf, int value) {
+        buf.writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * @return Whether every value converts to an {@code int} and back unchanged, keeping the sign of zero
+     */
+    private static boolean isIntegral(float[] values) {
+        for (float v : values) {
+            if (Float.floatToRawIntBits(v) != Float.floatToRawIntBits((int) v)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Whether every value converts to a {@code long} and back unchanged, keeping the sign of zero
+     */
+    private static boolean isIntegral(double[] values) {
+        for (double v : values) {
+            if (Double.doubleToRawLongBits(v) != Double.doubleToRawLongBits((long) v)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface JsonStreamFunction<T> {
+
+        T apply(JsonReader reader) throws IOException;
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import com.google.gson.JsonElement;
+import io.netty.buffer.Unpooled;
+import java.util.function.Supplier;
+import net.minecraft.network.PacketByteBuf;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A recipe variable that is decoded the first time it is used, rather than when the recipe is loaded. Declaring a {@link RecipeVar} field as
+ * {@code LazyVar<T>} keeps the raw JSON of the value, or its bytes in a recipe sync packet, until {@link #get()} is first called, which suits values that are
+ * costly to decode but rarely needed, such as display-only data.
+ * <p>
+ * The value is decoded at most once, and {@link #get()} may be called from any thread.
+ */
+public final class LazyVar<T> implements Supplier<T> {
+
+    /**
+     * The undecoded {@link JsonElement} or packet bytes of the value, or {@code null} once it has been decoded.
+     */
+    private volatile Object raw;
+    private RecipeVarCodec codec;
+    private final boolean compact;
+    private T value;
+
+    private LazyVar(Object raw, RecipeVarCodec codec, boolean compact, T value) {
+        this.raw = raw;
+        this.codec = codec;
+        this.compact = compact;
+        this.value = value;
+    }
+
+    /**
+     * @return A variable holding an already decoded value
+     */
+    public static <T> LazyVar<T> of(T value) {
+        return new LazyVar<>(null, null, false, value);
+    }
+
+    static <T> LazyVar<T> ofJson(JsonElement json, RecipeVarCodec codec) {
+        return new LazyVar<>(json, codec, false, null);
+    }
+
+    static <T> LazyVar<T> ofPacket(byte[] bytes, RecipeVarCodec codec, boolean compact) {
+        return new LazyVar<>(bytes, codec, compact, null);
+    }
+
+    /**
+     * @return The value, decoding it if this is the first call
+     */
+    @Override
+    public T get() {
+        if (this.raw != null) {
+            synchronized (this) {
+                Object raw = this.raw;
+
+                if (raw != null) {
+                    this.value = this.decode(raw);
+                    this.codec = null;
+                    this.raw = null;
+                }
+            }
+        }
+
+        return this.value;
+    }
+
+    /**
+     * @return Whether the value has been decoded
+     */
+    public boolean isDecoded() {
+        return this.raw == null;
+    }
+
+    /**
+     * @return The undecoded JSON of the value, or {@code null} if it was not read from JSON or has been decoded
+     */
+    @Nullable JsonElement rawJson() {
+        return this.raw instanceof JsonElement json ? json : null;
+    }
+
+    /**
+     * @return The undecoded packet bytes of the value, or {@code null} if it was not read in the given encoding or has been decoded
+     */
+    @Nullable byte[] rawPacket(boolean compact) {
+        return this.raw instanceof byte[] bytes && this.compact == compact ? bytes : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decode(Object raw) {
+        if (raw instanceof JsonElement json) {
+            return (T) this.codec.readJson(json);
+        }
+
+        // The bytes were written without the dictionary of the sync packet, so they must be read without it too
+        RecipeSyncContext context = RecipeSyncContext.suspend();
+
+        try {
+            return (T) this.codec.readPacket(new PacketByteBuf(Unpooled.wrappedBuffer((byte[]) raw)), this.compact);
+        } finally {
+            RecipeSyncContext.resume(context);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.isDecoded() ? String.valueOf(this.value) : "LazyVar[undecoded]";
+    }
+}
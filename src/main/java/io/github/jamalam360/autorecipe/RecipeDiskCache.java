@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.util.Identifier;
+import org.quiltmc.loader.api.QuiltLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent cache of the recipes of one {@link AutoRecipeSerializer}, stored in the loader's cache directory. Each entry holds the content hash of a
+ * recipe's JSON and the recipe's {@link AutoRecipeSerializer#writeCached cache encoding}, so recipes whose JSON has not changed since the last reload are
+ * rebuilt from the cache file rather than parsed.
+ * <p>
+ * The cache is only used while every variable serializer of the recipe type is {@link RecipeVarSerializer#isPacketLossless() lossless}. Other variables,
+ * such as item stacks and ingredients, may depend on state that can change without the recipe's JSON changing, such as the contents of tags, so they could
+ * only be cached as their JSON, which is no faster to read than the recipe itself.
+ * <p>
+ * The cache file is discarded as a whole when its version or schema fingerprint does not match, the fingerprint covering the serializer's
+ * {@link AutoRecipeSerializer#getSchemaFingerprint() schema} and the loaded mods, since the packet encoding of registry entries depends on both.
+ */
+final class RecipeDiskCache<T extends Recipe<?>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    private static final int MAGIC = 0x41524331;
+    private static final int VERSION = 3;
+    private final AutoRecipeSerializer<T> serializer;
+    private final Identifier id;
+    private final Path path;
+    /**
+     * The entries of this reload, written back to the cache file when the reload ends.
+     */
+    private final Map<Identifier, Entry> current = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    /**
+     * The entries loaded from the cache file, or {@code null} outside a reload.
+     */
+    private volatile Map<Identifier, Entry> previous;
+    private long fingerprint;
+    private boolean warned;
+
+    RecipeDiskCache(AutoRecipeSerializer<T> serializer, Identifier id) {
+        this.serializer = serializer;
+        this.id = id;
+        this.path = QuiltLoader.getCacheDir().resolve("autorecipe").resolve(id.getNamespace()).resolve(id.getPath() + ".bin");
+    }
+
+    /**
+     * @return Whether a reload is in progress, and recipes should be read through the cache
+     */
+    boolean isActive() {
+        return this.previous != null;
+    }
+
+    /**
+     * Called at the start of a reload, loads the cache file.
+     */
+    synchronized void begin() {
+        this.current.clear();
+        this.hits.set(0);
+
+        this.previous = null;
+
+        try {
+            // Checked on every reload, as variable serializers may be replaced after the recipe serializer is created
+            if (!this.serializer.isPacketLossless()) {
+                if (!this.warned) {
+                    this.warned = true;
+                    LOGGER.warn("Not caching recipes of " + this.id + " on disk, as not all of its variable serializers are lossless");
+                }
+
+                return;
+            }
+
+            this.fingerprint = this.fingerprint();
+        } catch (RuntimeException e) {
+            // Such as a variable serializer that is not registered, which fails every recipe of this type, but must not fail the reload
+            LOGGER.warn("Not caching recipes of " + this.id + " on disk, as its schema could not be resolved", e);
+            return;
+        }
+
+        this.previous = this.load();
+    }
+
+    /**
+     * Reads a recipe from the cache if its JSON has not changed, otherwise parses it and records its encoding.
+     */
+    T read(Identifier id, JsonObject json) {
+        Map<Identifier, Entry> previous = this.previous;
+        HashCode hash = Hashing.murmur3_128().hashString(json.toString(), StandardCharsets.UTF_8);
+        ByteBuffer bytes = ByteBuffer.wrap(hash.asBytes());
+        long high = bytes.getLong();
+        long low = bytes.getLong();
+        Entry entry = previous == null ? null : previous.get(id);
+
+        if (entry != null && entry.high == high && entry.low == low) {
+            try {
+                T t = this.serializer.readCached(id, new PacketByteBuf(entry.payload.duplicate()));
+                this.serializer.compile(t);
+                this.current.put(id, entry);
+                this.hits.incrementAndGet();
+                return t;
+            } catch (RuntimeException e) {
+                LOGGER.debug("Failed to read cached recipe " + id + ", parsing it instead", e);
+            }
+        }
+
+        T t = this.serializer.readFields(id, json);
+
+        try {
+            PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+            this.serializer.writeCached(buf, t);
+            this.current.put(id, new Entry(high, low, buf));
+        } catch (RuntimeException e) {
+            // The recipe is still usable, it just can't be cached
+            LOGGER.debug("Failed to cache recipe " + id, e);
+        }
+
+        this.serializer.compile(t);
+        return t;
+    }
+
+    /**
+     * Called at the end of a reload, writes the entries of this reload back to the cache file if any of them changed.
+     */
+    synchronized void end() {
+        Map<Identifier, Entry> previous = this.previous;
+        this.previous = null;
+
+        if (previous == null || (this.hits.get() == this.current.size() && this.current.size() == previous.size())) {
+            this.current.clear();
+            return;
+        }
+
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+        buf.writeInt(MAGIC);
+        buf.writeInt(VERSION);
+        buf.writeLong(this.fingerprint);
+        buf.writeVarInt(this.current.size());
+
+        for (Map.Entry<Identifier, Entry> entry : this.current.entrySet()) {
+            ByteBuf payload = entry.getValue().payload;
+            buf.writeIdentifier(entry.getKey());
+            buf.writeLong(entry.getValue().high);
+            buf.writeLong(entry.getValue().low);
+            buf.writeVarInt(payload.readableBytes());
+            buf.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+        }
+
+        this.current.clear();
+
+        try {
+            Files.createDirectories(this.path.getParent());
+            Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer nio = buf.nioBuffer(buf.readerIndex(), buf.readableBytes());
+
+                while (nio.hasRemaining()) {
+                    channel.write(nio);
+                }
+            }
+
+            Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write recipe cache " + this.path, e);
+        }
+    }
+
+    private Map<Identifier, Entry> load() {
+        if (!Files.isRegularFile(this.path)) {
+            return Map.of();
+        }
+
+        try {
+            // Read onto the heap rather than mapped, as a mapped file cannot be replaced on Windows until the mapping is garbage collected
+            PacketByteBuf buf = new PacketByteBuf(Unpooled.wrappedBuffer(Files.readAllBytes(this.path)));
+
+            if (buf.readableBytes() < 16 || buf.readInt() != MAGIC || buf.readInt() != VERSION || buf.readLong() != this.fingerprint) {
+                LOGGER.debug("Discarding outdated recipe cache " + this.path);
+                return Map.of();
+            }
+
+            int size = buf.readVarInt();
+            Map<Identifier, Entry> entries = new HashMap<>(size);
+
+            for (int i = 0; i < size; i++) {
+                Identifier id = buf.readIdentifier();
+                long high = buf.readLong();
+                long low = buf.readLong();
+                entries.put(id, new Entry(high, low, buf.readSlice(buf.readVarInt())));
+            }
+
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to read recipe cache " + this.path + ", it will be rebuilt", e);
+            return Map.of();
+        }
+    }
+
+    private long fingerprint() {
+        StringBuilder builder = new StringBuilder().append(this.serializer.getSchemaFingerprint());
+
+        QuiltLoader.getAllMods().stream().sorted(Comparator.comparing(mod -> mod.metadata().id())).forEach(mod -> {
+            builder.append(';').append(mod.metadata().id()).append('@').append(mod.metadata().version().raw());
+        });
+
+        return Hashing.murmur3_128().hashString(builder, StandardCharsets.UTF_8).asLong();
+    }
+
+    private record Entry(long high, long low, ByteBuf payload) {}
+}
@@ -0,0 +1,211 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes a single {@link RecipeVar} field of a recipe instance.
+ * <p>
+ * The primitive accessors are only valid to call when the field is of that exact primitive type; by default they box through {@link #get(Object)} and
+ * {@link #set(Object, Object)}, but implementations for primitive fields override them to avoid boxing.
+ */
+public abstract class RecipeFieldAccessor {
+
+    public abstract Object get(Object recipe);
+
+    public abstract void set(Object recipe, Object value);
+
+    public boolean getBoolean(Object recipe) {
+        return (Boolean) this.get(recipe);
+    }
+
+    public void setBoolean(Object recipe, boolean value) {
+        this.set(recipe, value);
+    }
+
+    public int getInt(Object recipe) {
+        return (Integer) this.get(recipe);
+    }
+
+    public void setInt(Object recipe, int value) {
+        this.set(recipe, value);
+    }
+
+    public long getLong(Object recipe) {
+        return (Long) this.get(recipe);
+    }
+
+    public void setLong(Object recipe, long value) {
+        this.set(recipe, value);
+    }
+
+    public float getFloat(Object recipe) {
+        return (Float) this.get(recipe);
+    }
+
+    public void setFloat(Object recipe, float value) {
+        this.set(recipe, value);
+    }
+
+    public double getDouble(Object recipe) {
+        return (Double) this.get(recipe);
+    }
+
+    public void setDouble(Object recipe, double value) {
+        this.set(recipe, value);
+    }
+
+    /**
+     * Creates an accessor backed by the given field through reflection. Primitive fields are read and written through the primitive methods of {@link Field},
+     * without boxing.
+     */
+    static RecipeFieldAccessor of(Field field) {
+        try {
+            field.setAccessible(true);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cannot access recipe field " + field.getDeclaringClass().getTypeName() + "#" + field.getName(), e);
+        }
+
+        return new OfField(field);
+    }
+
+    private static final class OfField extends RecipeFieldAccessor {
+
+        private final Field field;
+
+        private OfField(Field field) {
+            this.field = field;
+        }
+
+        @Override
+        public Object get(Object recipe) {
+            try {
+                return this.field.get(recipe);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void set(Object recipe, Object value) {
+            try {
+                this.field.set(recipe, value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public boolean getBoolean(Object recipe) {
+            try {
+                return this.field.getBoolean(recipe);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void setBoolean(Object recipe, boolean value) {
+            try {
+                this.field.setBoolean(recipe, value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public int getInt(Object recipe) {
+            try {
+                return this.field.getInt(recipe);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void setInt(Object recipe, int value) {
+            try {
+                this.field.setInt(recipe, value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public long getLong(Object recipe) {
+            try {
+                return this.field.getLong(recipe);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void setLong(Object recipe, long value) {
+            try {
+                this.field.setLong(recipe, value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public float getFloat(Object recipe) {
+            try {
+                return this.field.getFloat(recipe);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void setFloat(Object recipe, float value) {
+            try {
+                this.field.setFloat(recipe, value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public double getDouble(Object recipe) {
+            try {
+                return this.field.getDouble(recipe);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void setDouble(Object recipe, double value) {
+            try {
+                this.field.setDouble(recipe, value);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.github.jamalam360.autorecipe.AutoRecipeSerializer.RecipeVarData;
+
+/**
+ * Binds a {@link RecipeVarCodec} to an accessor for the {@link RecipeVar} field it reads and writes, along with the pre-split JSON path of the variable.
+ */
+final class RecipeFieldCodec {
+
+    final RecipeVarData var;
+    final String fieldName;
+    final RecipeFieldAccessor accessor;
+    private final String namespace;
+    private final RecipeVarField field;
+    private final String location;
+    /**
+     * The variable name split on '/', so nested JSON does not need to be re-split on every read.
+     */
+    final String[] path;
+    /**
+     * Whether this variable may be null, so is tracked in the presence bitmask of the {@link RecipePacketFormat#POSITIONAL positional} and {@link RecipePacketFormat#COMPACT compact}
+     * packet formats.
+     */
+    final boolean nullable;
+    /**
+     * The codec of the variable, created again whenever a variable serializer is registered, as it may replace the one the codec was created with.
+     */
+    private volatile Resolved resolved;
+
+    RecipeFieldCodec(RecipeVarField field, String namespace, String location) {
+        this.var = field.var();
+        this.fieldName = field.fieldName();
+        this.accessor = field.accessor();
+        this.namespace = namespace;
+        this.field = field;
+        this.location = location;
+        this.path = this.var.name().split("/");
+        this.nullable = !this.var.required() && !(field.type() instanceof Class<?> clazz && clazz.isPrimitive());
+        this.resolved = this.resolve();
+    }
+
+    private Resolved resolve() {
+        // Read before creating the codec, so a registration racing with this leaves a codec that is created again on next use
+        int epoch = AutoRecipeRegistry.getVariableSerializerEpoch();
+        return new Resolved(RecipeVarCodec.create(this.namespace, this.field.type(), this.location, this.var.shared(), this.var.immutable()), epoch);
+    }
+
+    private Resolved resolved() {
+        Resolved resolved = this.resolved;
+
+        if (resolved.epoch != AutoRecipeRegistry.getVariableSerializerEpoch()) {
+            resolved = this.resolve();
+            this.resolved = resolved;
+        }
+
+        return resolved;
+    }
+
+    /**
+     * @return The codec of the variable, using the variable serializers currently registered
+     */
+    RecipeVarCodec codec() {
+        return this.resolved().codec;
+    }
+
+    /**
+     * @return The variable's name followed by a hash of its value encoding, so that a reader skips the variable, rather than misreading it, if its type or
+     * serializer differ from the writer's
+     */
+    String tag() {
+        Resolved resolved = this.resolved();
+        String tag = resolved.tag;
+
+        // Resolved on first use, as the variable serializers may not be registered yet when the codec is created
+        if (tag == null) {
+            tag = this.var.name() + "@" + Integer.toHexString(resolved.codec.describe().hashCode());
+            resolved.tag = tag;
+        }
+
+        return tag;
+    }
+
+    /**
+     * @return The {@link AutoRecipeRegistry#getVariableSerializerEpoch() variable serializer epoch} the codec was created in
+     */
+    int epoch() {
+        return this.resolved().epoch;
+    }
+
+    /**
+     * @return The element at this variable's path, or null if it, or any of its parent objects, are missing
+     */
+    JsonElement find(JsonObject json) {
+        JsonObject obj = json;
+        int last = this.path.length - 1;
+
+        for (int i = 0; i < last; i++) {
+            JsonElement child = obj.get(this.path[i]);
+
+            if (child == null || !child.isJsonObject()) {
+                return null;
+            }
+
+            obj = child.getAsJsonObject();
+        }
+
+        return obj.get(this.path[last]);
+    }
+
+    /**
+     * Adds the element at this variable's path, creating (or reusing) any parent objects.
+     */
+    void put(JsonObject root, JsonElement element) {
+        JsonObject obj = root;
+        int last = this.path.length - 1;
+
+        for (int i = 0; i < last; i++) {
+            JsonElement child = obj.get(this.path[i]);
+
+            if (child == null || !child.isJsonObject()) {
+                child = new JsonObject();
+                obj.add(this.path[i], child);
+            }
+
+            obj = child.getAsJsonObject();
+        }
+
+        obj.add(this.path[last], element);
+    }
+
+    private static final class Resolved {
+
+        final RecipeVarCodec codec;
+        final int epoch;
+        /**
+         * The tag of the variable in the {@link RecipePacketFormat#TAGGED tagged} packet format.
+         */
+        volatile String tag;
+
+        Resolved(RecipeVarCodec codec, int epoch) {
+            this.codec = codec;
+            this.epoch = epoch;
+        }
+    }
+}
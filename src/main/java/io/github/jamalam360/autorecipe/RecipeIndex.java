@@ -0,0 +1,274 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import net.minecraft.block.Block;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.world.World;
+
+/**
+ * The recipes of one type held by a {@link RecipeManager}, indexed by their {@link RecipeVar#key() lookup key}. Recipes whose key is not set, or whose type has
+ * no key, are candidates for every lookup. Obtained from {@link AutoRecipeRegistry#getRecipeIndex(RecipeManager, net.minecraft.recipe.RecipeType)}, and
+ * rebuilt after every reload.
+ *
+ * @param <C> The type of inventory the recipes match against
+ * @param <T> The type of recipe
+ */
+public final class RecipeIndex<C extends Inventory, T extends Recipe<C>> {
+
+    /**
+     * The candidates of the current lookup on each thread, cleared after every lookup so they can be reused without allocating.
+     */
+    private static final ThreadLocal<BitSet> CANDIDATES = ThreadLocal.withInitial(BitSet::new);
+    private final List<T> recipes;
+    /**
+     * The positions in {@link #recipes} of the recipes whose key contains each item, in ascending order. Recipes without an item key are only held in
+     * {@link #withoutItem}, so each is checked once per lookup rather than once per key.
+     */
+    private final Map<Item, int[]> byItem = new HashMap<>();
+    private final int[] withoutItem;
+    private final Map<Block, int[]> byBlock = new HashMap<>();
+    private final int[] withoutBlock;
+
+    RecipeIndex(List<T> recipes) {
+        this.recipes = List.copyOf(recipes);
+        Map<Item, IntArrayList> byItem = new HashMap<>();
+        IntArrayList withoutItem = new IntArrayList();
+        Map<Block, IntArrayList> byBlock = new HashMap<>();
+        IntArrayList withoutBlock = new IntArrayList();
+
+        for (int i = 0; i < this.recipes.size(); i++) {
+            T recipe = this.recipes.get(i);
+            Set<Item> items = new LinkedHashSet<>();
+            Set<Block> blocks = new LinkedHashSet<>();
+
+            if (recipe.getSerializer() instanceof AutoRecipeSerializer<?> serializer && !collect(serializer.getLookupKey(recipe), items, blocks)) {
+                // Part of the key cannot be enumerated, so the recipe must be tested against everything
+                items.clear();
+                blocks.clear();
+            }
+
+            add(i, items, byItem, withoutItem);
+            add(i, blocks, byBlock, withoutBlock);
+        }
+
+        byItem.forEach((item, list) -> this.byItem.put(item, list.toIntArray()));
+        byBlock.forEach((block, list) -> this.byBlock.put(block, list.toIntArray()));
+        this.withoutItem = withoutItem.toIntArray();
+        this.withoutBlock = withoutBlock.toIntArray();
+    }
+
+    /**
+     * @return Whether a field of the given type may be used as a {@link RecipeVar#key() lookup key}
+     */
+    static boolean isKeyType(Type type) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw && Collection.class.isAssignableFrom(raw)) {
+            type = parameterized.getActualTypeArguments()[0];
+        }
+
+        return type == Item.class || type == ItemStack.class || type == Ingredient.class || type == Block.class;
+    }
+
+    /**
+     * @return Whether every item and block the key can match was collected
+     */
+    private static boolean collect(Object key, Set<Item> items, Set<Block> blocks) {
+        if (key instanceof Collection<?> collection) {
+            for (Object element : collection) {
+                if (!collect(element, items, blocks)) {
+                    return false;
+                }
+            }
+        } else if (key instanceof Item item) {
+            items.add(item);
+        } else if (key instanceof ItemStack stack) {
+            if (!stack.isEmpty()) {
+                items.add(stack.getItem());
+            }
+        } else if (key instanceof Ingredient ingredient) {
+            // The matching stacks of a custom ingredient are only a preview of what it matches
+            if (ingredient.getCustomIngredient() != null) {
+                return false;
+            }
+
+            for (ItemStack stack : ingredient.getMatchingStacks()) {
+                items.add(stack.getItem());
+            }
+        } else if (key instanceof Block block) {
+            blocks.add(block);
+        }
+
+        return true;
+    }
+
+    private static <K> void add(int recipe, Set<K> keys, Map<K, IntArrayList> index, IntArrayList without) {
+        if (keys.isEmpty()) {
+            without.add(recipe);
+        } else {
+            for (K key : keys) {
+                index.computeIfAbsent(key, k -> new IntArrayList()).add(recipe);
+            }
+        }
+    }
+
+    /**
+     * @return Every recipe of this type, in the order of the recipe manager
+     */
+    public List<T> getRecipes() {
+        return this.recipes;
+    }
+
+    /**
+     * @return The recipes whose key contains the given item, and the recipes without an item key, in the order of the recipe manager
+     */
+    public List<T> getRecipes(Item item) {
+        return this.merge(this.byItem.get(item), this.withoutItem);
+    }
+
+    /**
+     * @return The recipes whose key contains the given block, and the recipes without a block key, in the order of the recipe manager
+     */
+    public List<T> getRecipes(Block block) {
+        return this.merge(this.byBlock.get(block), this.withoutBlock);
+    }
+
+    private List<T> merge(int[] keyed, int[] without) {
+        if (keyed == null) {
+            keyed = new int[0];
+        }
+
+        List<T> result = new ArrayList<>(keyed.length + without.length);
+        int i = 0;
+        int j = 0;
+
+        while (i < keyed.length || j < without.length) {
+            if (j == without.length || (i < keyed.length && keyed[i] < without[j])) {
+                result.add(this.recipes.get(keyed[i++]));
+            } else {
+                result.add(this.recipes.get(without[j++]));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * An indexed equivalent of {@link RecipeManager#getFirstMatch(net.minecraft.recipe.RecipeType, Inventory, World)}, only testing the recipes whose key
+     * contains an item in the inventory.
+     */
+    public Optional<T> getFirstMatch(C inventory, World world) {
+        BitSet candidates = this.candidates(inventory);
+
+        try {
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                T recipe = this.recipes.get(i);
+
+                if (recipe.matches(inventory, world)) {
+                    return Optional.of(recipe);
+                }
+            }
+        } finally {
+            candidates.clear();
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * An indexed equivalent of {@link RecipeManager#getAllMatches(net.minecraft.recipe.RecipeType, Inventory, World)}, only testing the recipes whose key
+     * contains an item in the inventory.
+     */
+    public List<T> getAllMatches(C inventory, World world) {
+        BitSet candidates = this.candidates(inventory);
+        List<T> matches = new ArrayList<>();
+
+        try {
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                T recipe = this.recipes.get(i);
+
+                if (recipe.matches(inventory, world)) {
+                    matches.add(recipe);
+                }
+            }
+        } finally {
+            candidates.clear();
+        }
+
+        return matches;
+    }
+
+    /**
+     * @return The positions of the recipes to test, which the caller must clear once done with them
+     */
+    private BitSet candidates(C inventory) {
+        BitSet candidates = CANDIDATES.get();
+
+        if (!candidates.isEmpty()) {
+            // A recipe is looking up recipes while being matched, so the candidates of this thread are still in use
+            candidates = new BitSet(this.recipes.size());
+        }
+
+        if (this.byItem.isEmpty()) {
+            candidates.set(0, this.recipes.size());
+            return candidates;
+        }
+
+        for (int recipe : this.withoutItem) {
+            candidates.set(recipe);
+        }
+
+        for (int slot = 0; slot < inventory.size(); slot++) {
+            ItemStack stack = inventory.getStack(slot);
+
+            if (!stack.isEmpty()) {
+                int[] recipes = this.byItem.get(stack.getItem());
+
+                if (recipes != null) {
+                    for (int recipe : recipes) {
+                        candidates.set(recipe);
+                    }
+                }
+            }
+        }
+
+        return candidates;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.recipe.RecipeType;
+import net.minecraft.world.World;
+
+/**
+ * A bounded cache of recipe lookups, keyed by recipe type and the contents of the inventory, for machines that repeatedly look up recipes for the same
+ * inventory. Both matches and the absence of a match are cached, and the least recently used entries are evicted once the cache is full. The cache is cleared
+ * whenever recipes are reloaded.
+ * <p>
+ * Caching assumes that whether a recipe {@link Recipe#matches(Inventory, World) matches} depends only on the items, counts and NBT in the inventory.
+ *
+ * <pre>{@code
+ * private static final RecipeMatchCache CACHE = new RecipeMatchCache(256);
+ *
+ * Optional<MyRecipe> recipe = CACHE.getFirstMatch(MY_RECIPE_TYPE, inventory, world);
+ * }</pre>
+ */
+public final class RecipeMatchCache {
+
+    private final Map<Key, Optional<? extends Recipe<?>>> entries;
+    private int generation = RecipeReloads.getGeneration();
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity The maximum number of cached lookups
+     */
+    public RecipeMatchCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.entries = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Optional<? extends Recipe<?>>> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * A cached equivalent of {@link RecipeManager#getFirstMatch(RecipeType, Inventory, World)}, looking up recipes through the
+     * {@link AutoRecipeRegistry#getRecipeIndex(RecipeManager, RecipeType) recipe index} on a miss.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <C extends Inventory, T extends Recipe<C>> Optional<T> getFirstMatch(RecipeType<T> type, C inventory, World world) {
+        int generation = RecipeReloads.getGeneration();
+
+        if (this.generation != generation) {
+            this.entries.clear();
+            this.generation = generation;
+        }
+
+        RecipeManager manager = world.getRecipeManager();
+        Key key = new Key(manager, type, inventory);
+        Optional<T> result = (Optional<T>) this.entries.get(key);
+
+        if (result != null) {
+            this.hits++;
+            return result;
+        }
+
+        this.misses++;
+        result = AutoRecipeRegistry.getRecipeIndex(manager, type).getFirstMatch(inventory, world);
+        this.entries.put(key.snapshot(), result);
+        return result;
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * The contents of an inventory, compared by item, count and NBT. The recipe manager is part of the key so that a cache shared by the client and the
+     * integrated server does not mix their recipes.
+     */
+    private static final class Key {
+
+        private final RecipeManager manager;
+        private final RecipeType<?> type;
+        private final Item[] items;
+        private final int[] counts;
+        private final NbtCompound[] nbt;
+        private final int hash;
+
+        Key(RecipeManager manager, RecipeType<?> type, Inventory inventory) {
+            int size = inventory.size();
+            this.manager = manager;
+            this.type = type;
+            this.items = new Item[size];
+            this.counts = new int[size];
+            this.nbt = new NbtCompound[size];
+            int hash = System.identityHashCode(manager) * 31 + type.hashCode();
+
+            for (int slot = 0; slot < size; slot++) {
+                ItemStack stack = inventory.getStack(slot);
+
+                if (!stack.isEmpty()) {
+                    this.items[slot] = stack.getItem();
+                    this.counts[slot] = stack.getCount();
+                    this.nbt[slot] = stack.getNbt();
+                }
+
+                hash = hash * 31 + System.identityHashCode(this.items[slot]);
+                hash = hash * 31 + this.counts[slot];
+            }
+
+            this.hash = hash;
+        }
+
+        private Key(Key key, NbtCompound[] nbt) {
+            this.manager = key.manager;
+            this.type = key.type;
+            this.items = key.items;
+            this.counts = key.counts;
+            this.nbt = nbt;
+            this.hash = key.hash;
+        }
+
+        /**
+         * @return A copy of this key that is not affected by later changes to the NBT of the inventory's stacks
+         */
+        Key snapshot() {
+            NbtCompound[] nbt = new NbtCompound[this.nbt.length];
+
+            for (int i = 0; i < nbt.length; i++) {
+                nbt[i] = this.nbt[i] == null ? null : this.nbt[i].copy();
+            }
+
+            return new Key(this, nbt);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && this.manager == key.manager && this.type == key.type && Arrays.equals(this.items, key.items)
+                  && Arrays.equals(this.counts, key.counts) && Arrays.equals(this.nbt, key.nbt);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
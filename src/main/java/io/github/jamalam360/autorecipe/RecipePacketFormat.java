@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+/**
+ * The format used to write recipes of a type to packets, such as when syncing recipes to clients. Both sides always use the same format for a recipe type, as
+ * it is part of the type's registration.
+ */
+public enum RecipePacketFormat {
+    /**
+     * Each recipe starts with a bitmask of which optional variables are present, followed by the present variables written in order with
+     * {@link RecipeVarSerializer#writePacket}.
+     */
+    POSITIONAL,
+    /**
+     * Like {@link #POSITIONAL}, but variables are written with {@link RecipeVarSerializer#writePacketCompact}, which the default serializers use to write
+     * integral values as zigzag variable length integers.
+     */
+    COMPACT,
+    /**
+     * Each recipe starts with the number of variables present, followed by each present variable as a tag naming it, the length of its value, and its value
+     * written with {@link RecipeVarSerializer#writePacketCompact}. A reader skips variables it does not know, or whose type or serializer differ from its own,
+     * so recipe types using this format stay readable when their variables change between versions.
+     * <p>
+     * Values are written without the dictionary of the {@link RecipeSyncContext}, so that skipping one never affects those after it.
+     */
+    TAGGED
+}
@@ -0,0 +1,232 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.recipe.RecipeSerializer;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.ApiStatus.Internal;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hooks into {@link RecipeManager} datapack reloads, called from {@code RecipeManagerMixin}.
+ */
+@Internal
+public class RecipeReloads {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    private static final RecipeStats.Snapshot EMPTY_STATS = new RecipeStats().snapshot();
+    private static ForkJoinPool pool;
+    /**
+     * Incremented whenever a recipe manager's recipes are replaced, so caches of recipe lookups know to clear themselves.
+     */
+    private static volatile int generation;
+    /**
+     * The {@link RecipeStats} of every serializer at the start of the current reload, when instrumentation is enabled.
+     */
+    private static Map<Identifier, RecipeStats.Snapshot> statsAtStart = Map.of();
+    /**
+     * The reload running on this thread, set on the thread applying the reload and on the threads decoding its recipes in parallel.
+     */
+    private static final ThreadLocal<Reload> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Called before the recipe manager deserializes the given recipes.
+     *
+     * @return The state of this reload, to be passed to {@link #getDecoded(Reload, Identifier)} and {@link #end(Reload)}
+     */
+    public static Reload begin(Map<Identifier, JsonElement> recipes) {
+        if (RecipeStats.ENABLED) {
+            statsAtStart = AutoRecipeRegistry.getStats();
+        }
+
+        Reload reload = new Reload();
+        CURRENT.set(reload);
+
+        for (RecipeSerializer<?> serializer : Registries.RECIPE_SERIALIZER) {
+            if (serializer instanceof AutoRecipeSerializer<?> auto) {
+                if (auto.reuseCache != null) {
+                    auto.reuseCache.begin();
+                }
+
+                if (auto.diskCache != null) {
+                    auto.diskCache.begin();
+                }
+            }
+        }
+
+        if (AutoRecipeRegistry.isParallelDecoding()) {
+            reload.decoded = decodeInParallel(reload, recipes);
+        }
+
+        return reload;
+    }
+
+    /**
+     * Called in place of {@link RecipeManager#deserialize(Identifier, JsonObject)}.
+     *
+     * @param reload The reload returned by {@link #begin(Map)}
+     * @return The recipe decoded in parallel, or null if the recipe should be deserialized as normal
+     */
+    public static @Nullable Recipe<?> getDecoded(Reload reload, Identifier id) {
+        Object result = reload.decoded.get(id);
+
+        if (result instanceof RuntimeException e) {
+            throw e;
+        }
+
+        return (Recipe<?>) result;
+    }
+
+    /**
+     * Called after the recipe manager has finished loading recipes.
+     *
+     * @param reload The reload returned by {@link #begin(Map)}
+     */
+    public static void end(Reload reload) {
+        for (RecipeSerializer<?> serializer : Registries.RECIPE_SERIALIZER) {
+            if (serializer instanceof AutoRecipeSerializer<?> auto) {
+                if (auto.reuseCache != null) {
+                    auto.reuseCache.end();
+                }
+
+                if (auto.diskCache != null) {
+                    auto.diskCache.end();
+                }
+            }
+        }
+
+        CURRENT.remove();
+        reload.pool.finish();
+
+        if (RecipeStats.ENABLED) {
+            AutoRecipeRegistry.getStats().forEach((id, stats) -> {
+                RecipeStats.Snapshot reloadStats = stats.since(statsAtStart.getOrDefault(id, EMPTY_STATS));
+
+                if (reloadStats.jsonReads() > 0 || reloadStats.packetReads() > 0) {
+                    LOGGER.info("Reloaded " + id + ": " + reloadStats);
+                }
+            });
+            statsAtStart = Map.of();
+        }
+
+        generation++;
+    }
+
+    /**
+     * Called after a recipe manager's recipes are replaced with those received from the server.
+     */
+    public static void replaced() {
+        generation++;
+    }
+
+    static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return The pool of {@link RecipeVar#shared() shared} values of the reload running on this thread, or null if there is none
+     */
+    static @Nullable RecipeValuePool currentPool() {
+        Reload reload = CURRENT.get();
+        return reload == null ? null : reload.pool;
+    }
+
+    private static Map<Identifier, Object> decodeInParallel(Reload reload, Map<Identifier, JsonElement> recipes) {
+        List<Task> tasks = new ArrayList<>();
+
+        for (Map.Entry<Identifier, JsonElement> entry : recipes.entrySet()) {
+            if (entry.getValue() instanceof JsonObject json && json.get("type") instanceof JsonPrimitive type) {
+                Identifier typeId = Identifier.tryParse(type.getAsString());
+                RecipeSerializer<?> serializer = typeId == null ? null : Registries.RECIPE_SERIALIZER.get(typeId);
+
+                if (serializer instanceof AutoRecipeSerializer<?> auto && auto.isThreadSafe()) {
+                    tasks.add(new Task(entry.getKey(), json, auto));
+                }
+            }
+        }
+
+        if (tasks.size() < 2) {
+            return Map.of();
+        }
+
+        Map<Identifier, Object> results = new ConcurrentHashMap<>(tasks.size());
+        long start = System.nanoTime();
+        getPool().submit(() -> tasks.parallelStream().forEach(task -> {
+            Reload previous = CURRENT.get();
+            CURRENT.set(reload);
+
+            try {
+                results.put(task.id(), task.serializer().read(task.id(), task.json()));
+            } catch (RuntimeException e) {
+                results.put(task.id(), e);
+            } finally {
+                CURRENT.set(previous);
+            }
+        })).join();
+        LOGGER.debug("Decoded " + tasks.size() + " recipes in parallel in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return results;
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("Auto Recipe Decoder-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+
+        return pool;
+    }
+
+    private record Task(Identifier id, JsonObject json, AutoRecipeSerializer<?> serializer) {}
+
+    /**
+     * The state of a single datapack reload, kept by the recipe manager for the duration of the reload.
+     */
+    public static final class Reload {
+
+        private final RecipeValuePool pool = new RecipeValuePool();
+        private Map<Identifier, Object> decoded = Map.of();
+
+        private Reload() {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonObject;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The recipes of one {@link AutoRecipeSerializer} decoded by the last reload, each with a content hash of its JSON, so that a reload reuses the compiled recipe
+ * for every recipe whose JSON has not changed and only decodes the rest.
+ * <p>
+ * Every recipe is decoded again when the serializer's {@link AutoRecipeSerializer#getSchemaFingerprint() schema}, or any registered variable serializer, has
+ * changed since the last reload. Recipes that {@link AutoRecipeSerializer#refersToTags(JsonObject) refer to tags} are never reused, as the contents of their
+ * tags may have changed even when their JSON has not.
+ */
+final class RecipeReuseCache<T extends Recipe<?>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    private final AutoRecipeSerializer<T> serializer;
+    /**
+     * The entries of this reload, which replace those of the last reload when it ends.
+     */
+    private final Map<Identifier, Entry<T>> current = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    /**
+     * The entries of the last reload, or {@code null} outside a reload.
+     */
+    private volatile Map<Identifier, Entry<T>> previous;
+    private Map<Identifier, Entry<T>> retained = Map.of();
+    private long fingerprint;
+    private int epoch;
+
+    RecipeReuseCache(AutoRecipeSerializer<T> serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @return Whether a reload is in progress, and recipes should be read through the cache
+     */
+    boolean isActive() {
+        return this.previous != null;
+    }
+
+    /**
+     * Called at the start of a reload, discarding the entries of the last reload if the serializer has changed since.
+     */
+    synchronized void begin() {
+        long fingerprint;
+
+        try {
+            fingerprint = this.serializer.getSchemaFingerprint();
+        } catch (RuntimeException e) {
+            // Such as a variable serializer that is not registered, which fails every recipe of this type, but must not fail the reload
+            LOGGER.warn("Not reusing recipes of " + this.serializer.getId() + ", as its schema could not be resolved", e);
+            this.retained = Map.of();
+            this.current.clear();
+            this.previous = null;
+            return;
+        }
+
+        int epoch = AutoRecipeRegistry.getVariableSerializerEpoch();
+
+        if (fingerprint != this.fingerprint || epoch != this.epoch) {
+            this.retained = Map.of();
+            this.fingerprint = fingerprint;
+            this.epoch = epoch;
+        }
+
+        this.current.clear();
+        this.hits.set(0);
+        this.previous = this.retained;
+    }
+
+    /**
+     * Returns the recipe of the last reload if its JSON has not changed, otherwise decodes it.
+     */
+    T read(Identifier id, JsonObject json) {
+        Map<Identifier, Entry<T>> previous = this.previous;
+        HashCode hash = Hashing.murmur3_128().hashString(json.toString(), StandardCharsets.UTF_8);
+        Entry<T> entry = previous == null ? null : previous.get(id);
+
+        if (entry != null && entry.hash().equals(hash)) {
+            this.current.put(id, entry);
+            this.hits.incrementAndGet();
+            return entry.recipe();
+        }
+
+        T t = this.serializer.decode(id, json);
+
+        if (!this.serializer.refersToTags(json)) {
+            this.current.put(id, new Entry<>(hash, t));
+        }
+
+        return t;
+    }
+
+    /**
+     * Called at the end of a reload, keeping the recipes of this reload for the next.
+     */
+    synchronized void end() {
+        if (this.previous == null) {
+            return;
+        }
+
+        LOGGER.debug("Reused " + this.hits.get() + " of " + this.current.size() + " recipes of " + this.serializer.getId());
+        this.retained = Map.copyOf(this.current);
+        this.current.clear();
+        this.previous = null;
+    }
+
+    private record Entry<T>(HashCode hash, T recipe) {}
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+import net.fabricmc.fabric.api.networking.v1.ServerLoginConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerLoginNetworking;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.recipe.RecipeSerializer;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.ApiStatus.Internal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the {@link AutoRecipeSerializer#getSchemaFingerprint() schema fingerprints} of the server's recipe types with the client's during login. A recipe
+ * type whose packet encoding differs between the two would otherwise only fail once the client reads it from the recipe sync packet, after the whole packet
+ * has been sent, with an error far from the cause. Instead, the recipes of the types the client cannot read are left out of every recipe sync sent to it, and
+ * the types are logged on both sides. Clients without the mod are sent no auto recipes at all.
+ * <p>
+ * Recipe types using the {@link RecipePacketFormat#TAGGED tagged} packet format can be read even when their variables differ, so they are only compared by
+ * their format. The query also tells clients that the server supports {@link RecipeSyncDelta recipe sync deltas}.
+ */
+@Internal
+public final class RecipeSchemaNegotiation {
+
+    public static final Identifier CHANNEL = new Identifier("autorecipe", "schemas");
+    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    /**
+     * The status of a recipe type whose fingerprint follows it.
+     */
+    private static final byte FINGERPRINT = 0;
+    /**
+     * The status of a recipe type using the tagged packet format, which has no fingerprint.
+     */
+    private static final byte TAGGED = 1;
+    /**
+     * The status of a recipe type whose fingerprint could not be computed, such as one with a variable without a serializer, which is always incompatible.
+     */
+    private static final byte UNAVAILABLE = 2;
+
+    private RecipeSchemaNegotiation() {
+    }
+
+    static void registerServer() {
+        ServerLoginConnectionEvents.QUERY_START.register((handler, server, sender, synchronizer) -> {
+            // Sent even when there are no recipe types to compare, as it also tells clients that the server can write recipe sync deltas
+            PacketByteBuf buf = PacketByteBufs.create();
+            buf.writeMap(getSchemas(), PacketByteBuf::writeIdentifier, (b, schema) -> schema.write(b));
+            sender.sendPacket(CHANNEL, buf);
+        });
+
+        ServerLoginNetworking.registerGlobalReceiver(CHANNEL, (server, handler, understood, buf, synchronizer, responseSender) -> {
+            RecipeSyncDelta.ConnectionState state = ((RecipeSyncStateHolder) handler).autorecipe$getSyncState();
+
+            if (!understood) {
+                // Clients without the mod cannot read any auto recipe
+                state.exclude(getSchemas().keySet());
+                return;
+            }
+
+            List<Identifier> incompatible = buf.readList(PacketByteBuf::readIdentifier);
+
+            if (!incompatible.isEmpty()) {
+                LOGGER.warn(handler.getConnectionInfo() + " cannot read recipe types " + incompatible.stream().map(Identifier::toString)
+                      .collect(Collectors.joining(", ")) + ", their recipes will not be sent to it");
+                state.exclude(incompatible);
+            }
+        });
+    }
+
+    /**
+     * Called on the client with the schemas sent by the server.
+     *
+     * @return The response to the server, listing the recipe types that the client does not have or encodes differently
+     */
+    static PacketByteBuf respond(PacketByteBuf buf) {
+        Map<Identifier, Schema> server = buf.readMap(PacketByteBuf::readIdentifier, Schema::read);
+        Map<Identifier, Schema> client = getSchemas();
+        List<Identifier> incompatible = new ArrayList<>();
+
+        server.forEach((id, schema) -> {
+            if (schema.status() == UNAVAILABLE || !schema.equals(client.get(id))) {
+                incompatible.add(id);
+            }
+        });
+
+        if (!incompatible.isEmpty()) {
+            LOGGER.error("Recipe types " + incompatible + " are missing or encoded differently on this client than on the server, their recipes will not be "
+                  + "synced");
+        }
+
+        PacketByteBuf response = PacketByteBufs.create();
+        response.writeCollection(incompatible, PacketByteBuf::writeIdentifier);
+        return response;
+    }
+
+    private static Map<Identifier, Schema> getSchemas() {
+        Map<Identifier, Schema> schemas = new LinkedHashMap<>();
+
+        for (RecipeSerializer<?> serializer : Registries.RECIPE_SERIALIZER) {
+            if (serializer instanceof AutoRecipeSerializer<?> auto) {
+                Schema schema;
+
+                try {
+                    schema = auto.getOptions().getPacketFormat() == RecipePacketFormat.TAGGED ? new Schema(TAGGED, 0)
+                          : new Schema(FINGERPRINT, auto.getSchemaFingerprint());
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to compute the schema fingerprint of recipe type " + auto.getId() + ", it will be reported as incompatible", e);
+                    schema = new Schema(UNAVAILABLE, 0);
+                }
+
+                schemas.put(auto.getId(), schema);
+            }
+        }
+
+        return schemas;
+    }
+
+    /**
+     * @param status Whether the recipe type has a {@link #FINGERPRINT fingerprint}, uses the {@link #TAGGED tagged} format, or is {@link #UNAVAILABLE}
+     * @param fingerprint The schema fingerprint, only written for the {@link #FINGERPRINT} status
+     */
+    private record Schema(byte status, long fingerprint) {
+
+        static Schema read(PacketByteBuf buf) {
+            byte status = buf.readByte();
+            return new Schema(status, status == FINGERPRINT ? buf.readLong() : 0);
+        }
+
+        void write(PacketByteBuf buf) {
+            buf.writeByte(this.status);
+
+            if (this.status == FINGERPRINT) {
+                buf.writeLong(this.fingerprint);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by one {@link AutoRecipeSerializer}: JSON decoding, packet decoding and encoding, and {@link AutoSerializedRecipe#compile()}.
+ * Recipes rebuilt from the {@link AutoRecipeOptions.Builder#persistentCache() persistent cache} count as packet decodes.
+ * <p>
+ * Counting is disabled unless the game is started with {@code -Dautorecipe.instrumentation=true}, in which case the work done by each recipe type is also
+ * logged after every reload. When disabled, the counters stay at zero and cost nothing but a check of a constant.
+ */
+public final class RecipeStats {
+
+    public static final boolean ENABLED = Boolean.getBoolean("autorecipe.instrumentation");
+
+    final LongAdder jsonReads = new LongAdder();
+    final LongAdder jsonReadNanos = new LongAdder();
+    final LongAdder packetReads = new LongAdder();
+    final LongAdder packetReadNanos = new LongAdder();
+    final LongAdder packetReadBytes = new LongAdder();
+    final LongAdder packetWrites = new LongAdder();
+    final LongAdder packetWriteNanos = new LongAdder();
+    final LongAdder packetWriteBytes = new LongAdder();
+    final LongAdder compiles = new LongAdder();
+    final LongAdder compileNanos = new LongAdder();
+
+    RecipeStats() {
+    }
+
+    /**
+     * @return A copy of the current values of the counters
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this.jsonReads.sum(), this.jsonReadNanos.sum(), this.packetReads.sum(), this.packetReadNanos.sum(), this.packetReadBytes.sum(),
+              this.packetWrites.sum(), this.packetWriteNanos.sum(), this.packetWriteBytes.sum(), this.compiles.sum(), this.compileNanos.sum());
+    }
+
+    public void reset() {
+        this.jsonReads.reset();
+        this.jsonReadNanos.reset();
+        this.packetReads.reset();
+        this.packetReadNanos.reset();
+        this.packetReadBytes.reset();
+        this.packetWrites.reset();
+        this.packetWriteNanos.reset();
+        this.packetWriteBytes.reset();
+        this.compiles.reset();
+        this.compileNanos.reset();
+    }
+
+    /**
+     * The values of the counters at one point in time. Times are in nanoseconds, and JSON and packet decoding times do not include compiling.
+     */
+    public record Snapshot(long jsonReads, long jsonReadNanos, long packetReads, long packetReadNanos, long packetReadBytes, long packetWrites,
+                           long packetWriteNanos, long packetWriteBytes, long compiles, long compileNanos) {
+
+        /**
+         * @return The work done between an earlier snapshot and this one
+         */
+        public Snapshot since(Snapshot earlier) {
+            return new Snapshot(this.jsonReads - earlier.jsonReads, this.jsonReadNanos - earlier.jsonReadNanos, this.packetReads - earlier.packetReads,
+                  this.packetReadNanos - earlier.packetReadNanos, this.packetReadBytes - earlier.packetReadBytes, this.packetWrites - earlier.packetWrites,
+                  this.packetWriteNanos - earlier.packetWriteNanos, this.packetWriteBytes - earlier.packetWriteBytes, this.compiles - earlier.compiles,
+                  this.compileNanos - earlier.compileNanos);
+        }
+
+        @Override
+        public String toString() {
+            return this.jsonReads + " JSON reads in " + millis(this.jsonReadNanos) + ", " + this.packetReads + " packet reads (" + this.packetReadBytes
+                  + " bytes) in " + millis(this.packetReadNanos) + ", " + this.packetWrites + " packet writes (" + this.packetWriteBytes + " bytes) in "
+                  + millis(this.packetWriteNanos) + ", " + this.compiles + " compiles in " + millis(this.compileNanos);
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.2fms", nanos / 1_000_000.0);
+        }
+    }
+}
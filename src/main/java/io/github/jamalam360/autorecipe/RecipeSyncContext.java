@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.ApiStatus.Internal;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * State shared by every recipe written to, or read from, a single recipe sync packet.
+ * <p>
+ * Most importantly, this holds a dictionary of the strings and identifiers already sent in the packet: the first occurrence of a value is written in full, and
+ * later occurrences as a variable length index into the dictionary. Custom {@link RecipeVarSerializer}s can share the dictionary by writing strings and
+ * identifiers through the static methods of this class, which fall back to writing values in full when no sync is in progress.
+ */
+public final class RecipeSyncContext {
+
+    private static final ThreadLocal<RecipeSyncContext> CURRENT = new ThreadLocal<>();
+    private final Object2IntMap<String> writtenStrings = new Object2IntOpenHashMap<>();
+    private final Object2IntMap<Identifier> writtenIdentifiers = new Object2IntOpenHashMap<>();
+    private final List<String> readStrings = new ArrayList<>();
+    private final List<Identifier> readIdentifiers = new ArrayList<>();
+    private RecipeValuePool pool;
+
+    private RecipeSyncContext() {
+        this.writtenStrings.defaultReturnValue(-1);
+        this.writtenIdentifiers.defaultReturnValue(-1);
+    }
+
+    /**
+     * @return The context of the recipe sync packet being written or read on this thread, or null if there is none
+     */
+    public static @Nullable RecipeSyncContext current() {
+        return CURRENT.get();
+    }
+
+    @Internal
+    public static void begin() {
+        CURRENT.set(new RecipeSyncContext());
+    }
+
+    @Internal
+    public static void end() {
+        RecipeSyncContext context = CURRENT.get();
+        CURRENT.remove();
+
+        if (context != null && context.pool != null) {
+            context.pool.finish();
+        }
+    }
+
+    /**
+     * Suspends the context of this thread, so values are written and read in full until it is {@link #resume(RecipeSyncContext) resumed}.
+     *
+     * @return The suspended context, or null if there was none
+     */
+    static @Nullable RecipeSyncContext suspend() {
+        RecipeSyncContext context = CURRENT.get();
+        CURRENT.remove();
+        return context;
+    }
+
+    static void resume(@Nullable RecipeSyncContext context) {
+        if (context != null) {
+            CURRENT.set(context);
+        }
+    }
+
+    /**
+     * @return The pool of {@link RecipeVar#shared() shared} values decoded from this packet
+     */
+    RecipeValuePool pool() {
+        if (this.pool == null) {
+            this.pool = new RecipeValuePool();
+        }
+
+        return this.pool;
+    }
+
+    /**
+     * Writes a string, through the dictionary of the current sync if there is one.
+     */
+    public static void writeString(PacketByteBuf buf, String value) {
+        writeString(CURRENT.get(), buf, value);
+    }
+
+    /**
+     * Writes a string through the dictionary of the given context, used while the context is {@link #suspend() suspended}.
+     */
+    static void writeString(@Nullable RecipeSyncContext context, PacketByteBuf buf, String value) {
+        if (context == null) {
+            buf.writeString(value);
+            return;
+        }
+
+        int index = context.writtenStrings.getInt(value);
+
+        if (index == -1) {
+            context.writtenStrings.put(value, context.writtenStrings.size());
+            buf.writeVarInt(0);
+            buf.writeString(value);
+        } else {
+            buf.writeVarInt(index + 1);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(PacketByteBuf, String)}.
+     */
+    public static String readString(PacketByteBuf buf) {
+        return readString(CURRENT.get(), buf);
+    }
+
+    static String readString(@Nullable RecipeSyncContext context, PacketByteBuf buf) {
+        if (context == null) {
+            return buf.readString();
+        }
+
+        int index = buf.readVarInt();
+
+        if (index == 0) {
+            String value = buf.readString();
+            context.readStrings.add(value);
+            return value;
+        }
+
+        return context.readStrings.get(index - 1);
+    }
+
+    /**
+     * Writes an identifier, through the dictionary of the current sync if there is one.
+     */
+    public static void writeIdentifier(PacketByteBuf buf, Identifier value) {
+        RecipeSyncContext context = CURRENT.get();
+
+        if (context == null) {
+            buf.writeIdentifier(value);
+            return;
+        }
+
+        int index = context.writtenIdentifiers.getInt(value);
+
+        if (index == -1) {
+            context.writtenIdentifiers.put(value, context.writtenIdentifiers.size());
+            buf.writeVarInt(0);
+            buf.writeIdentifier(value);
+        } else {
+            buf.writeVarInt(index + 1);
+        }
+    }
+
+    /**
+     * Reads an identifier written by {@link #writeIdentifier(PacketByteBuf, Identifier)}. Repeated identifiers are read as the same instance.
+     */
+    public static Identifier readIdentifier(PacketByteBuf buf) {
+        RecipeSyncContext context = CURRENT.get();
+
+        if (context == null) {
+            return buf.readIdentifier();
+        }
+
+        int index = buf.readVarInt();
+
+        if (index == 0) {
+            Identifier value = buf.readIdentifier();
+            context.readIdentifiers.add(value);
+            return value;
+        }
+
+        return context.readIdentifiers.get(index - 1);
+    }
+}
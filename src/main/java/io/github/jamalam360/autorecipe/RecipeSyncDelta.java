@@ -0,0 +1,545 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.s2c.play.SynchronizeRecipesS2CPacket;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.ApiStatus.Internal;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The difference between the auto recipes a player has and those of a {@link SynchronizeRecipesS2CPacket}, so that a recipe sync, such as the one after a
+ * datapack reload, only sends the auto recipes that were added or changed, and the ids of those that were removed. Other recipes are always sent in full.
+ * <p>
+ * Each auto recipe is compared by a hash of its {@link AutoRecipeSerializer#writeContents(PacketByteBuf, Recipe) contents}, and each set of auto recipes is
+ * identified by a fingerprint of their ids and hashes. The delta is written after the recipes of the packet, which vanilla clients cannot read, so it is only
+ * written for clients that registered {@link #CHANNEL}, and only read from servers that sent the login query of {@link RecipeSchemaNegotiation}.
+ * <p>
+ * Clients acknowledge each set of recipes they apply through {@link #CHANNEL}, and the server makes each delta from the set that the player last acknowledged,
+ * sending every recipe until one has been. A client sent a delta that was not made from its current recipes refuses it, and requests every recipe instead.
+ * <p>
+ * The recipes of the types a client cannot read, found by {@link RecipeSchemaNegotiation} during login, are left out of every packet sent to it.
+ */
+@Internal
+public final class RecipeSyncDelta {
+
+    public static final Identifier CHANNEL = new Identifier("autorecipe", "recipe_sync");
+    private static final byte ACKNOWLEDGE = 0;
+    private static final byte RESYNC = 1;
+    /**
+     * The minimum time between two resyncs of the same player, so a client cannot make the server encode every recipe over and over.
+     */
+    private static final long RESYNC_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+    /**
+     * How long a resync may go unacknowledged before another may be sent.
+     */
+    private static final long RESYNC_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    /**
+     * The manifest of the recipes last synced, and those recipes, so that it is only created again once they change.
+     */
+    private static Manifest latest;
+    private static Recipe<?>[] latestRecipes;
+    /**
+     * Whether the server the client is connecting to sent the login query, and so may write a delta to the packets of players that support it.
+     */
+    private static volatile boolean serverSupported;
+    /**
+     * Whether the delta is written to its packet. Packets without one are read as vanilla ones, replacing every recipe.
+     */
+    private final boolean tracked;
+    private final boolean full;
+    private final long fingerprint;
+    private final long base;
+    private final List<Identifier> removed;
+    /**
+     * The bytes of the packet, recorded the first time it is written and copied into every later write. Packets of every recipe share this with every packet
+     * made from the same {@link Manifest} and written the same way, as they hold the same recipes.
+     */
+    private final AtomicReference<ByteBuffer> encoded;
+    /**
+     * The manifest of the packet's recipes, or null if the delta was read from one.
+     */
+    private final Manifest manifest;
+    /**
+     * For packets that are not tracked, the packets made from them for players that support deltas, by the fingerprint of the players' acknowledged recipes,
+     * or by null for players without any.
+     */
+    private final Map<Long, SynchronizeRecipesS2CPacket> derived;
+    /**
+     * For packets that are not tracked, the packets made from them for players that cannot read some recipe types, by those types.
+     */
+    private final Map<Set<Identifier>, SynchronizeRecipesS2CPacket> filtered;
+
+    private RecipeSyncDelta(boolean tracked, boolean full, long fingerprint, long base, List<Identifier> removed, AtomicReference<ByteBuffer> encoded,
+          Manifest manifest) {
+        this.tracked = tracked;
+        this.full = full;
+        this.fingerprint = fingerprint;
+        this.base = base;
+        this.removed = removed;
+        this.encoded = encoded;
+        this.manifest = manifest;
+        this.derived = tracked ? null : new HashMap<>();
+        this.filtered = tracked ? null : new HashMap<>();
+    }
+
+    static void registerServer() {
+        ServerPlayNetworking.registerGlobalReceiver(CHANNEL, (server, player, handler, buf, responseSender) -> {
+            ConnectionState state = ((RecipeSyncStateHolder) handler).autorecipe$getSyncState();
+            byte kind = buf.readByte();
+
+            if (kind == ACKNOWLEDGE) {
+                state.acknowledge(buf.readLong());
+            } else if (kind == RESYNC) {
+                if (state.requestResync()) {
+                    server.execute(() -> handler.sendPacket(new SynchronizeRecipesS2CPacket(server.getRecipeManager().values())));
+                } else {
+                    LOGGER.debug("Ignoring a recipe resync request from " + player + ", as one was sent recently");
+                }
+            } else {
+                LOGGER.warn("Received an unknown recipe sync message " + kind + " from " + player);
+            }
+        });
+    }
+
+    /**
+     * Called on the client when it begins to log in to a server, and when that server sends the login query.
+     */
+    static void setServerSupported(boolean supported) {
+        serverSupported = supported;
+    }
+
+    /**
+     * Called when the server sends a sync packet to a player.
+     *
+     * @return The packet to send in its place, holding a delta from the recipes the player last acknowledged if the player supports deltas
+     */
+    public static SynchronizeRecipesS2CPacket forConnection(SynchronizeRecipesS2CPacket packet, ServerPlayNetworkHandler handler) {
+        RecipeSyncDelta delta;
+
+        synchronized (packet) {
+            RecipeSyncDeltaHolder holder = (RecipeSyncDeltaHolder) packet;
+            delta = holder.autorecipe$getDelta();
+
+            if (delta == null) {
+                Manifest manifest = getManifest(packet.getRecipes());
+                delta = new RecipeSyncDelta(false, true, manifest.fingerprint(), 0, List.of(), manifest.encodedUntracked(), manifest);
+                holder.autorecipe$setDelta(delta);
+            }
+        }
+
+        if (delta.tracked) {
+            return packet;
+        }
+
+        ConnectionState state = ((RecipeSyncStateHolder) handler).autorecipe$getSyncState();
+        Set<Identifier> excluded = state.excludedTypes;
+
+        if (!excluded.isEmpty()) {
+            packet = delta.without(packet, excluded);
+            delta = ((RecipeSyncDeltaHolder) packet).autorecipe$getDelta();
+        }
+
+        if (!ServerPlayNetworking.canSend(handler, CHANNEL)) {
+            return packet;
+        }
+
+        synchronized (state) {
+            state.pending.addLast(delta.manifest);
+            return delta.derive(packet, state.acknowledged);
+        }
+    }
+
+    private static synchronized Manifest getManifest(List<Recipe<?>> recipes) {
+        Recipe<?>[] previous = latestRecipes;
+
+        if (previous != null && previous.length == recipes.size()) {
+            boolean same = true;
+
+            for (int i = 0; i < previous.length && same; i++) {
+                same = previous[i] == recipes.get(i);
+            }
+
+            // Players joining between reloads are sent the same recipes, so the hashes do not need to be computed again
+            if (same) {
+                return latest;
+            }
+        }
+
+        latest = Manifest.of(recipes);
+        latestRecipes = recipes.toArray(new Recipe<?>[0]);
+        return latest;
+    }
+
+    /**
+     * @return The packet of this delta's recipes without the recipes of the given types, shared by every player that cannot read the same types
+     */
+    private synchronized SynchronizeRecipesS2CPacket without(SynchronizeRecipesS2CPacket packet, Set<Identifier> types) {
+        SynchronizeRecipesS2CPacket filtered = this.filtered.get(types);
+
+        if (filtered == null) {
+            List<Recipe<?>> recipes = new ArrayList<>();
+
+            for (Recipe<?> recipe : packet.getRecipes()) {
+                if (!(recipe.getSerializer() instanceof AutoRecipeSerializer<?> serializer) || !types.contains(serializer.getId())) {
+                    recipes.add(recipe);
+                }
+            }
+
+            Manifest manifest = Manifest.of(recipes);
+            filtered = new SynchronizeRecipesS2CPacket(recipes);
+            ((RecipeSyncDeltaHolder) filtered).autorecipe$setDelta(
+                  new RecipeSyncDelta(false, true, manifest.fingerprint(), 0, List.of(), manifest.encodedUntracked(), manifest));
+            this.filtered.put(types, filtered);
+        }
+
+        return filtered;
+    }
+
+    /**
+     * @return The packet of this delta's recipes for players that acknowledged the given recipes, shared by every such player
+     */
+    private synchronized SynchronizeRecipesS2CPacket derive(SynchronizeRecipesS2CPacket packet, @Nullable Manifest acknowledged) {
+        Long key = acknowledged != null ? acknowledged.fingerprint() : null;
+        SynchronizeRecipesS2CPacket derived = this.derived.get(key);
+
+        if (derived == null) {
+            derived = acknowledged != null ? this.createDelta(packet.getRecipes(), acknowledged) : this.createFull(packet.getRecipes());
+            this.derived.put(key, derived);
+        }
+
+        return derived;
+    }
+
+    private SynchronizeRecipesS2CPacket createFull(List<Recipe<?>> recipes) {
+        SynchronizeRecipesS2CPacket packet = new SynchronizeRecipesS2CPacket(recipes);
+        ((RecipeSyncDeltaHolder) packet).autorecipe$setDelta(
+              new RecipeSyncDelta(true, true, this.fingerprint, 0, List.of(), this.manifest.encodedFull(), this.manifest));
+        return packet;
+    }
+
+    private SynchronizeRecipesS2CPacket createDelta(List<Recipe<?>> recipes, Manifest previous) {
+        Manifest manifest = this.manifest;
+        List<Identifier> removed = new ArrayList<>();
+
+        for (Identifier id : previous.hashes().keySet()) {
+            if (!manifest.hashes().containsKey(id)) {
+                removed.add(id);
+            }
+        }
+
+        List<Recipe<?>> sent = new ArrayList<>();
+
+        for (Recipe<?> recipe : recipes) {
+            Identifier id = recipe.getId();
+
+            if (!manifest.hashes().containsKey(id) || !previous.hashes().containsKey(id) || previous.hashes().getLong(id) != manifest.hashes().getLong(id)) {
+                sent.add(recipe);
+            }
+        }
+
+        LOGGER.debug("Syncing " + (sent.size() + manifest.hashes().size() - recipes.size()) + " of " + manifest.hashes().size() + " auto recipes, removing "
+              + removed.size());
+        SynchronizeRecipesS2CPacket packet = new SynchronizeRecipesS2CPacket(sent);
+        ((RecipeSyncDeltaHolder) packet).autorecipe$setDelta(
+              new RecipeSyncDelta(true, false, manifest.fingerprint(), previous.fingerprint(), removed, new AtomicReference<>(), manifest));
+        return packet;
+    }
+
+    /**
+     * @return Whether the delta was read from its packet, or will be written to it
+     */
+    public boolean isTracked() {
+        return this.tracked;
+    }
+
+    /**
+     * @return The fingerprint of the auto recipes the client has once this delta is applied
+     */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Called when a sync packet begins to be written. The same packet is written for every player it is sent to, often from several network threads at once,
+     * so once it has been encoded, its bytes are copied rather than encoding every recipe again.
+     *
+     * @param delta The delta of the packet, or null if it was never sent through {@link #forConnection(SynchronizeRecipesS2CPacket, ServerPlayNetworkHandler)}
+     * @return Whether the packet was written from its recorded bytes, and should not be written again
+     */
+    public static boolean writeEncoded(@Nullable RecipeSyncDelta delta, PacketByteBuf buf) {
+        ByteBuffer encoded = delta != null ? delta.encoded.get() : null;
+
+        if (encoded != null) {
+            buf.writeBytes(encoded.duplicate());
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Called when the recipes of a sync packet have been written, while its {@link RecipeSyncContext} is still active.
+     */
+    public static void writeDelta(@Nullable RecipeSyncDelta delta, PacketByteBuf buf) {
+        if (delta != null && delta.tracked) {
+            delta.write(buf);
+        }
+    }
+
+    /**
+     * Called when a sync packet has been written, recording its bytes for the next time it is written.
+     *
+     * @param start The writer index of the buffer when writing the packet began
+     */
+    public static void recordEncoded(@Nullable RecipeSyncDelta delta, PacketByteBuf buf, int start) {
+        if (delta != null && delta.encoded.get() == null) {
+            int length = buf.writerIndex() - start;
+            // A direct buffer is freed once the packets holding it are, so buffers that are still being copied from never need to be released
+            ByteBuffer encoded = ByteBuffer.allocateDirect(length).put(buf.nioBuffer(start, length)).flip().asReadOnlyBuffer();
+            delta.encoded.compareAndSet(null, encoded);
+        }
+    }
+
+    /**
+     * Writes the delta to a sync packet, after its recipes.
+     */
+    private void write(PacketByteBuf buf) {
+        buf.writeBoolean(this.full);
+        buf.writeLong(this.fingerprint);
+
+        if (!this.full) {
+            buf.writeLong(this.base);
+            buf.writeVarInt(this.removed.size());
+
+            for (Identifier id : this.removed) {
+                buf.writeIdentifier(id);
+            }
+        }
+    }
+
+    /**
+     * Called on the client once a sync packet's recipes have been read.
+     *
+     * @return The delta written after the recipes, or null if the packet has none
+     */
+    public static @Nullable RecipeSyncDelta read(PacketByteBuf buf) {
+        // Servers that support deltas only write them for some packets, and never after the end of the recipes of the others
+        if (!serverSupported || !buf.isReadable()) {
+            return null;
+        }
+
+        boolean full = buf.readBoolean();
+        long fingerprint = buf.readLong();
+
+        if (full) {
+            return new RecipeSyncDelta(true, true, fingerprint, 0, List.of(), new AtomicReference<>(), null);
+        }
+
+        long base = buf.readLong();
+        int size = buf.readVarInt();
+        List<Identifier> removed = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            removed.add(buf.readIdentifier());
+        }
+
+        return new RecipeSyncDelta(true, false, fingerprint, base, removed, new AtomicReference<>(), null);
+    }
+
+    /**
+     * Called on the client to apply a sync packet to its current recipes.
+     *
+     * @param current The fingerprint of the client's current auto recipes, or null if it has not acknowledged any
+     * @param existing The client's current recipes
+     * @param received The recipes read from the packet
+     * @return The client's recipes after the sync, or null if the delta was not made from the client's current recipes, and they should be
+     * {@link #createResyncRequest() requested} again instead
+     */
+    public @Nullable Collection<Recipe<?>> apply(@Nullable Long current, Collection<Recipe<?>> existing, List<Recipe<?>> received) {
+        if (this.full) {
+            return received;
+        }
+
+        if (current == null || current != this.base) {
+            LOGGER.warn("Received a recipe sync delta that was not made from the client's current recipes, requesting every recipe instead");
+            return null;
+        }
+
+        Set<Identifier> replaced = new HashSet<>(this.removed);
+        List<Recipe<?>> result = new ArrayList<>(received);
+
+        for (Recipe<?> recipe : received) {
+            replaced.add(recipe.getId());
+        }
+
+        for (Recipe<?> recipe : existing) {
+            if (recipe.getSerializer() instanceof AutoRecipeSerializer<?> && !replaced.contains(recipe.getId())) {
+                result.add(recipe);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The message sent through {@link #CHANNEL} once the client has applied a delta, so that the server makes later deltas from its recipes
+     */
+    public PacketByteBuf createAcknowledgement() {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeByte(ACKNOWLEDGE);
+        buf.writeLong(this.fingerprint);
+        return buf;
+    }
+
+    /**
+     * @return The message sent through {@link #CHANNEL} when the client refuses a delta, so that the server sends it every recipe
+     */
+    public static PacketByteBuf createResyncRequest() {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeByte(RESYNC);
+        return buf;
+    }
+
+    /**
+     * The recipes the server has sent to a player, held by the player's connection.
+     */
+    public static final class ConnectionState {
+
+        /**
+         * The manifests of the packets sent to the player that it has not yet acknowledged, oldest first.
+         */
+        private final Deque<Manifest> pending = new ArrayDeque<>();
+        private Manifest acknowledged;
+        /**
+         * The auto recipe types the client cannot read, found during login, whose recipes are left out of every sync packet sent to the player.
+         */
+        private volatile Set<Identifier> excludedTypes = Set.of();
+        /**
+         * Whether every recipe has been sent at the player's request, and the player has not yet acknowledged them.
+         */
+        private boolean resyncPending;
+        private long lastResync = System.nanoTime() - RESYNC_TIMEOUT;
+
+        void exclude(Collection<Identifier> types) {
+            this.excludedTypes = Set.copyOf(types);
+        }
+
+        synchronized void acknowledge(long fingerprint) {
+            while (!this.pending.isEmpty()) {
+                Manifest manifest = this.pending.removeFirst();
+
+                if (manifest.fingerprint() == fingerprint) {
+                    this.acknowledged = manifest;
+                    this.resyncPending = false;
+                    return;
+                }
+            }
+
+            LOGGER.warn("Received an acknowledgement of recipes that were never sent");
+        }
+
+        /**
+         * Called when the player requests every recipe. At most one resync is outstanding at a time, and resyncs are at least {@link #RESYNC_INTERVAL}
+         * apart. A request that is too early still forgets the player's recipes, so the next sync sends every recipe.
+         *
+         * @return Whether every recipe should be sent to the player now
+         */
+        synchronized boolean requestResync() {
+            long now = System.nanoTime();
+
+            if (this.resyncPending && now - this.lastResync < RESYNC_TIMEOUT) {
+                // The pending resync holds every recipe, and forgetting its manifest would leave its acknowledgement unmatched
+                return false;
+            }
+
+            this.pending.clear();
+            this.acknowledged = null;
+
+            if (now - this.lastResync < RESYNC_INTERVAL) {
+                return false;
+            }
+
+            this.resyncPending = true;
+            this.lastResync = now;
+            return true;
+        }
+    }
+
+    /**
+     * The hashes of the auto recipes in a sync packet.
+     *
+     * @param encodedUntracked The bytes of the sync packet for the manifest's recipes without a delta, once one has been written
+     * @param encodedFull The bytes of the sync packet for the manifest's recipes with a full delta, once one has been written
+     */
+    private record Manifest(Object2LongMap<Identifier> hashes, long fingerprint, AtomicReference<ByteBuffer> encodedUntracked,
+                            AtomicReference<ByteBuffer> encodedFull) {
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        static Manifest of(Collection<Recipe<?>> recipes) {
+            Object2LongMap<Identifier> hashes = new Object2LongOpenHashMap<>();
+            PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+            long fingerprint = 0;
+
+            for (Recipe<?> recipe : recipes) {
+                if (recipe.getSerializer() instanceof AutoRecipeSerializer serializer) {
+                    buf.clear();
+                    serializer.writeContents(buf, recipe);
+                    long hash = HASH.newHasher().putUnencodedChars(serializer.getId().toString()).putBytes(buf.nioBuffer()).hash().asLong();
+                    hashes.put(recipe.getId(), hash);
+                    // Summed so that the fingerprint does not depend on the order of the recipes
+                    fingerprint += HASH.newHasher().putUnencodedChars(recipe.getId().toString()).putLong(hash).hash().asLong();
+                }
+            }
+
+            return new Manifest(hashes, fingerprint, new AtomicReference<>(), new AtomicReference<>());
+        }
+    }
+}
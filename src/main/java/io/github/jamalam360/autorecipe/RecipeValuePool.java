@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe;
+
+import com.google.gson.JsonElement;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.util.Identifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Canonicalizes the values of {@link RecipeVar#shared() shared} variables, so equal identifiers, item stacks and ingredients decoded during a datapack reload,
+ * or from a single recipe sync packet, are the same instance. Each reload and packet has its own pool, which only lives as long as it does, so it never keeps
+ * values alive.
+ */
+public final class RecipeValuePool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    private static volatile Stats lastStats = new Stats(0, 0);
+    private final Map<Object, Object> values = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+
+    RecipeValuePool() {
+    }
+
+    /**
+     * @return How many shared values were decoded by the last reload or recipe sync packet to finish, and how many of them were replaced by an equal value
+     * decoded earlier
+     */
+    public static Stats getLastStats() {
+        return lastStats;
+    }
+
+    /**
+     * @return Whether a field of the given type may be {@link RecipeVar#shared() shared}
+     */
+    static boolean isPoolable(Type type) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw) {
+            if (Collection.class.isAssignableFrom(raw)) {
+                type = parameterized.getActualTypeArguments()[0];
+            } else if (Map.class.isAssignableFrom(raw)) {
+                type = parameterized.getActualTypeArguments()[1];
+            }
+        }
+
+        return type == Identifier.class || type == ItemStack.class || type == Ingredient.class;
+    }
+
+    /**
+     * @return The canonical instance of a value in the pool of the current reload or sync packet, or the value itself if there is none
+     */
+    static Object intern(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        RecipeSyncContext context = RecipeSyncContext.current();
+        RecipeValuePool pool = context == null ? RecipeReloads.currentPool() : context.pool();
+        return pool == null ? value : pool.canonicalize(value);
+    }
+
+    void finish() {
+        Stats stats = new Stats(this.lookups.sum(), this.deduplicated.sum());
+
+        if (stats.values() > 0) {
+            lastStats = stats;
+            LOGGER.debug("Deduplicated " + stats.deduplicated() + " of " + stats.values() + " shared recipe values");
+        }
+    }
+
+    private Object canonicalize(Object value) {
+        Object key;
+
+        if (value instanceof Identifier) {
+            key = value;
+        } else if (value instanceof ItemStack stack) {
+            if (stack.isEmpty()) {
+                return ItemStack.EMPTY;
+            }
+
+            key = new StackKey(stack.getItem(), stack.getCount(), stack.getNbt());
+        } else if (value instanceof Ingredient ingredient) {
+            if (ingredient.isEmpty()) {
+                return Ingredient.EMPTY;
+            }
+
+            key = new IngredientKey(ingredient.toJson());
+        } else {
+            return value;
+        }
+
+        this.lookups.increment();
+        Object existing = this.values.get(key);
+
+        if (existing == null) {
+            if (value instanceof ItemStack stack) {
+                // Item stacks are mutable, so the pool keeps its own copy, and a key which changes to the decoded stack cannot affect
+                NbtCompound nbt = stack.getNbt();
+                key = new StackKey(stack.getItem(), stack.getCount(), nbt == null ? null : nbt.copy());
+                value = stack.copy();
+            }
+
+            existing = this.values.putIfAbsent(key, value);
+
+            if (existing == null) {
+                return value;
+            }
+        }
+
+        this.deduplicated.increment();
+        return existing;
+    }
+
+    public record Stats(long values, long deduplicated) {}
+
+    private record StackKey(Item item, int count, NbtCompound nbt) {}
+
+    private record IngredientKey(JsonElement json) {}
+}
@@ -47,4 +47,28 @@ public @interface RecipeVar {
      * @return Whether this field is required in the recipe JSON. If this is false, then the field may be null when using the recipe.
      */
     boolean required() default true;
+
+    /**
+     * @return Whether this field is the lookup key of the recipe type, by which its recipes are indexed in
+     * {@link AutoRecipeRegistry#getRecipeIndex(net.minecraft.recipe.RecipeManager, net.minecraft.recipe.RecipeType)}. At most one field of a recipe may be the
+     * key, and it must be an {@code Item}, {@code ItemStack}, {@code Ingredient} or {@code Block}, or a collection of one of these.
+     */
+    boolean key() default false;
+
+    /**
+     * @return Whether equal values of this field are decoded as a single instance shared between every recipe loaded in the same reload or sync packet. The
+     * field must be an {@code Identifier}, {@code ItemStack} or {@code Ingredient}, or a collection or map of one of these.
+     *
+     * @apiNote Shared values must never be mutated, as the change would be visible in every recipe sharing them.
+     */
+    boolean shared() default false;
+
+    /**
+     * @return Whether this field is decoded into an exactly sized immutable collection or map, rather than a mutable one with spare capacity. This trades the
+     * ability to modify the value after loading for a smaller steady state footprint of the loaded recipes. The field must be a {@code List}, {@code Set},
+     * {@code DefaultedList} or {@code Map}, or a {@link LazyVar} of one of these.
+     *
+     * @apiNote An immutable {@code DefaultedList} has a fixed size, but its elements may still be replaced.
+     */
+    boolean immutable() default false;
 }
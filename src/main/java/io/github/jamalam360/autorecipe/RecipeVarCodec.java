@@ -0,0 +1,1029 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.objects.ObjectArraySet;
+import it.unimi.dsi.fastutil.objects.ObjectImmutableList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectSets;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.collection.DefaultedList;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A precompiled codec for the value of a single {@link RecipeVar}. All reflective inspection of the field's type (collection factories, map key constructors,
+ * variable serializer lookups) happens once when the codec is created, so the hot read and write paths only walk already resolved state.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+abstract class RecipeVarCodec {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("autorecipe");
+    /**
+     * The largest frozen set backed by an array rather than a hash table.
+     */
+    private static final int ARRAY_SET_MAX_SIZE = 8;
+
+    abstract Object readJson(JsonElement element);
+
+    /**
+     * Reads a value from a stream of JSON tokens, positioned at the value.
+     */
+    abstract Object readJson(JsonReader reader) throws IOException;
+
+    abstract JsonElement toJson(Object value);
+
+    /**
+     * @param compact Whether to use the {@link RecipePacketFormat#COMPACT compact} encoding of values
+     */
+    abstract Object readPacket(PacketByteBuf buf, boolean compact);
+
+    /**
+     * @param compact Whether to use the {@link RecipePacketFormat#COMPACT compact} encoding of values
+     */
+    abstract void writePacket(PacketByteBuf buf, Object value, boolean compact);
+
+    /**
+     * @return Whether every variable serializer used by this codec is thread safe
+     */
+    abstract boolean isThreadSafe();
+
+    /**
+     * @return Whether every variable serializer used by this codec has a {@link RecipeVarSerializer#isPacketLossless() lossless} packet encoding
+     */
+    abstract boolean isPacketLossless();
+
+    /**
+     * @return A description of the value types and variable serializers used by this codec, which changes whenever its packet encoding may have changed
+     */
+    abstract String describe();
+
+    /**
+     * Reads a value from JSON directly into a recipe field. Primitive codecs override this to avoid boxing.
+     */
+    void readJson(RecipeFieldAccessor accessor, Object recipe, JsonElement element) {
+        accessor.set(recipe, this.readJson(element));
+    }
+
+    /**
+     * Reads a value from a stream of JSON tokens directly into a recipe field. Primitive codecs override this to avoid boxing.
+     */
+    void readJson(RecipeFieldAccessor accessor, Object recipe, JsonReader reader) throws IOException {
+        accessor.set(recipe, this.readJson(reader));
+    }
+
+    /**
+     * Reads a value from a packet directly into a recipe field. Primitive codecs override this to avoid boxing.
+     */
+    void readPacket(RecipeFieldAccessor accessor, Object recipe, PacketByteBuf buf, boolean compact) {
+        accessor.set(recipe, this.readPacket(buf, compact));
+    }
+
+    /**
+     * Writes the value of a recipe field to a packet. Primitive codecs override this to avoid boxing.
+     */
+    void writePacket(PacketByteBuf buf, RecipeFieldAccessor accessor, Object recipe, boolean compact) {
+        this.writePacket(buf, accessor.get(recipe), compact);
+    }
+
+    /**
+     * @param namespace The namespace used to look up scoped variable serializers
+     * @param type The generic type of the field
+     * @param location A human readable location of the field, used in error messages
+     * @param shared Whether decoded values are canonicalized through the {@link RecipeValuePool}
+     * @param immutable Whether decoded collections and maps are {@link RecipeVar#immutable() frozen} into right-sized immutable instances
+     */
+    static RecipeVarCodec create(String namespace, Type type, String location, boolean shared, boolean immutable) {
+        Class<?> rawType = rawType(type);
+
+        if (rawType == LazyVar.class) {
+            if (!(type instanceof ParameterizedType parameterized)) {
+                throw new RuntimeException("Raw LazyVar type used for field " + location + ", a type argument is required");
+            }
+
+            return new OfLazy(create(namespace, parameterized.getActualTypeArguments()[0], location, shared, immutable));
+        } else if (rawType == List.class) {
+            return new OfCollection(new Single(namespace, typeArgument(type, 0, location), location, shared), size -> new ArrayList(size),
+                  immutable ? RecipeVarCodec::freezeList : null);
+        } else if (rawType == Set.class) {
+            return new OfCollection(new Single(namespace, typeArgument(type, 0, location), location, shared), size -> Sets.newHashSetWithExpectedSize(size),
+                  immutable ? RecipeVarCodec::freezeSet : null);
+        } else if (rawType == DefaultedList.class) {
+            // DefaultedList cannot be presized, so frozen lists are collected into a plain list first
+            return new OfCollection(new Single(namespace, typeArgument(type, 0, location), location, shared),
+                  immutable ? size -> new ArrayList(size) : size -> DefaultedList.of(), immutable ? RecipeVarCodec::freezeDefaultedList : null);
+        } else if (rawType == Map.class) {
+            return new OfMap(keyConverter(typeArgument(type, 0, location), location), new Single(namespace, typeArgument(type, 1, location), location, shared), immutable);
+        } else if (immutable) {
+            throw new RuntimeException("Immutable variable " + location + " must be a List, Set, DefaultedList or Map");
+        } else if (rawType.isPrimitive()) {
+            return primitive(new Single(namespace, rawType, location, false));
+        } else {
+            return new Single(namespace, rawType, location, shared);
+        }
+    }
+
+    /**
+     * Wraps an exactly sized copy of the elements, without the spare capacity of an {@link ArrayList}.
+     */
+    private static Object freezeList(Collection collection) {
+        return collection.isEmpty() ? ObjectImmutableList.of() : new ObjectImmutableList(collection.toArray());
+    }
+
+    /**
+     * Small sets are backed by an exactly sized array and searched linearly, which is both smaller and faster than hashing at these sizes. Larger sets use an
+     * open addressing hash set sized for their contents, without the per entry nodes of a {@link java.util.HashSet}.
+     */
+    private static Object freezeSet(Collection collection) {
+        if (collection.isEmpty()) {
+            return ObjectSets.emptySet();
+        } else if (collection.size() <= ARRAY_SET_MAX_SIZE) {
+            // The elements were collected into a set, so they are already distinct
+            return ObjectSets.unmodifiable(new ObjectArraySet(collection.toArray()));
+        }
+
+        return ObjectSets.unmodifiable(new ObjectOpenHashSet(collection));
+    }
+
+    private static Object freezeDefaultedList(Collection collection) {
+        return DefaultedList.copyOf(null, collection.toArray());
+    }
+
+    /**
+     * Uses an unboxed codec if the serializer registered for a primitive field is specialized for it, otherwise falls back to boxing.
+     */
+    private static RecipeVarCodec primitive(Single single) {
+        RecipeVarSerializer<?> serializer = single.serializer;
+
+        if (single.type == boolean.class && serializer instanceof RecipeVarSerializer.OfBoolean specialized) {
+            return new OfBoolean(single, specialized);
+        } else if (single.type == int.class && serializer instanceof RecipeVarSerializer.OfInt specialized) {
+            return new OfInt(single, specialized);
+        } else if (single.type == long.class && serializer instanceof RecipeVarSerializer.OfLong specialized) {
+            return new OfLong(single, specialized);
+        } else if (single.type == float.class && serializer instanceof RecipeVarSerializer.OfFloat specialized) {
+            return new OfFloat(single, specialized);
+        } else if (single.type == double.class && serializer instanceof RecipeVarSerializer.OfDouble specialized) {
+            return new OfDouble(single, specialized);
+        }
+
+        return single;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        }
+
+        return (Class<?>) type;
+    }
+
+    private static Class<?> typeArgument(Type type, int index, String location) {
+        if (!(type instanceof ParameterizedType parameterized)) {
+            throw new RuntimeException("Raw collection type used for field " + location + ", a type argument is required");
+        }
+
+        return rawType(parameterized.getActualTypeArguments()[index]);
+    }
+
+    private static Function<String, Object> keyConverter(Class<?> keyType, String location) {
+        if (keyType == String.class) {
+            return s -> s;
+        }
+
+        MethodHandle constructor;
+
+        try {
+            constructor = MethodHandles.publicLookup().findConstructor(keyType, MethodType.methodType(void.class, String.class))
+                  .asType(MethodType.methodType(Object.class, String.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException("Map key for field " + location + " cannot be constructed from a string", e);
+        }
+
+        return s -> {
+            try {
+                return (Object) constructor.invokeExact(s);
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * A plain value, handled directly by a {@link RecipeVarSerializer}.
+     */
+    static final class Single extends RecipeVarCodec {
+
+        private final String namespace;
+        final Class<?> type;
+        final boolean shared;
+        RecipeVarSerializer<Object> serializer;
+
+        Single(String namespace, Class<?> type, String location, boolean shared) {
+            this.namespace = namespace;
+            this.type = type;
+            this.shared = shared;
+            this.serializer = (RecipeVarSerializer<Object>) AutoRecipeRegistry.getVariableSerializer(namespace, type);
+
+            if (this.serializer == null) {
+                LOGGER.warn("No serializer found for type " + type.getTypeName() + " at " + location + ", has it not been registered yet?");
+            }
+        }
+
+        RecipeVarSerializer<Object> serializer() {
+            RecipeVarSerializer<Object> serializer = this.serializer;
+
+            if (serializer == null) {
+                // The variable serializer may be registered after the recipe serializer, so retry the lookup until it is found
+                serializer = (RecipeVarSerializer<Object>) AutoRecipeRegistry.getVariableSerializer(this.namespace, this.type);
+
+                if (serializer == null) {
+                    throw new RuntimeException("No serializer registered for type " + this.type.getTypeName());
+                }
+
+                this.serializer = serializer;
+            }
+
+            return serializer;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            return this.pool(this.serializer().readJson(element));
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            return this.pool(this.serializer().readJson(reader));
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            return this.serializer().toJson(value);
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            return this.pool(compact ? this.serializer().readPacketCompact(buf) : this.serializer().readPacket(buf));
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            if (compact) {
+                this.serializer().writePacketCompact(buf, value);
+            } else {
+                this.serializer().writePacket(buf, value);
+            }
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.serializer().isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.serializer().isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return this.type.getTypeName() + "=" + this.serializer().getClass().getName();
+        }
+
+        private Object pool(Object value) {
+            return this.shared ? RecipeValuePool.intern(value) : value;
+        }
+    }
+
+    /**
+     * A {@link List}, {@link Set} or {@link DefaultedList} of values. In JSON, a single non-array element is accepted as a collection of one.
+     */
+    static final class OfCollection extends RecipeVarCodec {
+
+        private final Single element;
+        private final IntFunction<Collection> factory;
+        private final @Nullable Function<Collection, Object> freezer;
+
+        /**
+         * @param freezer Converts the decoded collection into its final, immutable form, or null to keep the collection created by the factory
+         */
+        OfCollection(Single element, IntFunction<Collection> factory, @Nullable Function<Collection, Object> freezer) {
+            this.element = element;
+            this.factory = factory;
+            this.freezer = freezer;
+        }
+
+        private Object finish(Collection collection) {
+            return this.freezer == null ? collection : this.freezer.apply(collection);
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            Collection collection;
+
+            if (element.isJsonArray()) {
+                JsonArray array = element.getAsJsonArray();
+                collection = this.factory.apply(array.size());
+
+                if (this.element.shared) {
+                    for (JsonElement e : array) {
+                        collection.add(this.element.readJson(e));
+                    }
+                } else {
+                    this.element.serializer().readJsonArray(array, collection);
+                }
+            } else {
+                collection = this.factory.apply(1);
+                collection.add(this.element.readJson(element));
+            }
+
+            return this.finish(collection);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            Collection collection;
+
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                collection = this.factory.apply(0);
+                reader.beginArray();
+
+                while (reader.hasNext()) {
+                    collection.add(this.element.readJson(reader));
+                }
+
+                reader.endArray();
+            } else {
+                collection = this.factory.apply(1);
+                collection.add(this.element.readJson(reader));
+            }
+
+            return this.finish(collection);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            JsonArray array = new JsonArray();
+
+            for (Object v : (Iterable<?>) value) {
+                array.add(this.element.toJson(v));
+            }
+
+            return array;
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            int size = buf.readVarInt();
+            Collection collection = this.factory.apply(size);
+
+            if (compact || this.element.shared) {
+                for (int i = 0; i < size; i++) {
+                    collection.add(this.element.readPacket(buf, compact));
+                }
+            } else {
+                this.element.serializer().readPacketArray(buf, size, collection);
+            }
+
+            return this.finish(collection);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            Collection<?> collection = (Collection<?>) value;
+            buf.writeVarInt(collection.size());
+
+            if (compact) {
+                for (Object v : collection) {
+                    this.element.writePacket(buf, v, true);
+                }
+            } else {
+                this.element.serializer().writePacketArray(buf, collection);
+            }
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.element.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.element.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return "[" + this.element.describe() + "]";
+        }
+    }
+
+    /**
+     * A {@link Map} whose keys are strings, or are constructed from strings.
+     */
+    static final class OfMap extends RecipeVarCodec {
+
+        private final Function<String, Object> keyConverter;
+        private final Single value;
+        private final boolean immutable;
+
+        OfMap(Function<String, Object> keyConverter, Single value, boolean immutable) {
+            this.keyConverter = keyConverter;
+            this.value = value;
+            this.immutable = immutable;
+        }
+
+        private Object finish(Map map) {
+            return this.immutable ? ImmutableMap.copyOf(map) : map;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            JsonObject object = element.getAsJsonObject();
+            Map map = Maps.newHashMapWithExpectedSize(object.size());
+
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                map.put(this.keyConverter.apply(entry.getKey()), this.value.readJson(entry.getValue()));
+            }
+
+            return this.finish(map);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            Map map = Maps.newHashMap();
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                Object key = this.keyConverter.apply(reader.nextName());
+                map.put(key, this.value.readJson(reader));
+            }
+
+            reader.endObject();
+            return this.finish(map);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            JsonObject obj = new JsonObject();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                obj.add(entry.getKey().toString(), this.value.toJson(entry.getValue()));
+            }
+
+            return obj;
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            int size = buf.readVarInt();
+            Map map = Maps.newHashMapWithExpectedSize(size);
+
+            for (int i = 0; i < size; i++) {
+                Object key = this.keyConverter.apply(RecipeSyncContext.readString(buf));
+                map.put(key, this.value.readPacket(buf, compact));
+            }
+
+            return this.finish(map);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            buf.writeVarInt(map.size());
+
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                RecipeSyncContext.writeString(buf, entry.getKey().toString());
+                this.value.writePacket(buf, entry.getValue(), compact);
+            }
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.value.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.value.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return "{" + this.value.describe() + "}";
+        }
+    }
+
+    /**
+     * A {@code boolean} field, read and written without boxing.
+     */
+    static final class OfBoolean extends RecipeVarCodec {
+
+        private final Single boxed;
+        private final RecipeVarSerializer.OfBoolean serializer;
+
+        OfBoolean(Single boxed, RecipeVarSerializer.OfBoolean serializer) {
+            this.boxed = boxed;
+            this.serializer = serializer;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            return this.serializer.readJsonBoolean(element);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            return this.serializer.readJsonBoolean(reader);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            return this.boxed.toJson(value);
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            return this.serializer.readPacketBoolean(buf);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            this.serializer.writePacketBoolean(buf, (Boolean) value);
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonElement element) {
+            accessor.setBoolean(recipe, this.serializer.readJsonBoolean(element));
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonReader reader) throws IOException {
+            accessor.setBoolean(recipe, this.serializer.readJsonBoolean(reader));
+        }
+
+        @Override
+        void readPacket(RecipeFieldAccessor accessor, Object recipe, PacketByteBuf buf, boolean compact) {
+            accessor.setBoolean(recipe, this.serializer.readPacketBoolean(buf));
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, RecipeFieldAccessor accessor, Object recipe, boolean compact) {
+            this.serializer.writePacketBoolean(buf, accessor.getBoolean(recipe));
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.serializer.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.serializer.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return this.boxed.describe();
+        }
+    }
+
+    /**
+     * A {@code int} field, read and written without boxing.
+     */
+    static final class OfInt extends RecipeVarCodec {
+
+        private final Single boxed;
+        private final RecipeVarSerializer.OfInt serializer;
+
+        OfInt(Single boxed, RecipeVarSerializer.OfInt serializer) {
+            this.boxed = boxed;
+            this.serializer = serializer;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            return this.serializer.readJsonInt(element);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            return this.serializer.readJsonInt(reader);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            return this.boxed.toJson(value);
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            return compact ? this.serializer.readPacketIntCompact(buf) : this.serializer.readPacketInt(buf);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            this.writePacketInt(buf, (Integer) value, compact);
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonElement element) {
+            accessor.setInt(recipe, this.serializer.readJsonInt(element));
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonReader reader) throws IOException {
+            accessor.setInt(recipe, this.serializer.readJsonInt(reader));
+        }
+
+        @Override
+        void readPacket(RecipeFieldAccessor accessor, Object recipe, PacketByteBuf buf, boolean compact) {
+            accessor.setInt(recipe, compact ? this.serializer.readPacketIntCompact(buf) : this.serializer.readPacketInt(buf));
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, RecipeFieldAccessor accessor, Object recipe, boolean compact) {
+            this.writePacketInt(buf, accessor.getInt(recipe), compact);
+        }
+
+        private void writePacketInt(PacketByteBuf buf, int value, boolean compact) {
+            if (compact) {
+                this.serializer.writePacketIntCompact(buf, value);
+            } else {
+                this.serializer.writePacketInt(buf, value);
+            }
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.serializer.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.serializer.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return this.boxed.describe();
+        }
+    }
+
+    /**
+     * A {@code long} field, read and written without boxing.
+     */
+    static final class OfLong extends RecipeVarCodec {
+
+        private final Single boxed;
+        private final RecipeVarSerializer.OfLong serializer;
+
+        OfLong(Single boxed, RecipeVarSerializer.OfLong serializer) {
+            this.boxed = boxed;
+            this.serializer = serializer;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            return this.serializer.readJsonLong(element);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            return this.serializer.readJsonLong(reader);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            return this.boxed.toJson(value);
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            return compact ? this.serializer.readPacketLongCompact(buf) : this.serializer.readPacketLong(buf);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            this.writePacketLong(buf, (Long) value, compact);
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonElement element) {
+            accessor.setLong(recipe, this.serializer.readJsonLong(element));
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonReader reader) throws IOException {
+            accessor.setLong(recipe, this.serializer.readJsonLong(reader));
+        }
+
+        @Override
+        void readPacket(RecipeFieldAccessor accessor, Object recipe, PacketByteBuf buf, boolean compact) {
+            accessor.setLong(recipe, compact ? this.serializer.readPacketLongCompact(buf) : this.serializer.readPacketLong(buf));
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, RecipeFieldAccessor accessor, Object recipe, boolean compact) {
+            this.writePacketLong(buf, accessor.getLong(recipe), compact);
+        }
+
+        private void writePacketLong(PacketByteBuf buf, long value, boolean compact) {
+            if (compact) {
+                this.serializer.writePacketLongCompact(buf, value);
+            } else {
+                this.serializer.writePacketLong(buf, value);
+            }
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.serializer.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.serializer.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return this.boxed.describe();
+        }
+    }
+
+    /**
+     * A {@code float} field, read and written without boxing.
+     */
+    static final class OfFloat extends RecipeVarCodec {
+
+        private final Single boxed;
+        private final RecipeVarSerializer.OfFloat serializer;
+
+        OfFloat(Single boxed, RecipeVarSerializer.OfFloat serializer) {
+            this.boxed = boxed;
+            this.serializer = serializer;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            return this.serializer.readJsonFloat(element);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            return this.serializer.readJsonFloat(reader);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            return this.boxed.toJson(value);
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            return this.serializer.readPacketFloat(buf);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            this.serializer.writePacketFloat(buf, (Float) value);
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonElement element) {
+            accessor.setFloat(recipe, this.serializer.readJsonFloat(element));
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonReader reader) throws IOException {
+            accessor.setFloat(recipe, this.serializer.readJsonFloat(reader));
+        }
+
+        @Override
+        void readPacket(RecipeFieldAccessor accessor, Object recipe, PacketByteBuf buf, boolean compact) {
+            accessor.setFloat(recipe, this.serializer.readPacketFloat(buf));
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, RecipeFieldAccessor accessor, Object recipe, boolean compact) {
+            this.serializer.writePacketFloat(buf, accessor.getFloat(recipe));
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.serializer.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.serializer.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return this.boxed.describe();
+        }
+    }
+
+    /**
+     * A {@code double} field, read and written without boxing.
+     */
+    static final class OfDouble extends RecipeVarCodec {
+
+        private final Single boxed;
+        private final RecipeVarSerializer.OfDouble serializer;
+
+        OfDouble(Single boxed, RecipeVarSerializer.OfDouble serializer) {
+            this.boxed = boxed;
+            this.serializer = serializer;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            return this.serializer.readJsonDouble(element);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) throws IOException {
+            return this.serializer.readJsonDouble(reader);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            return this.boxed.toJson(value);
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            return this.serializer.readPacketDouble(buf);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            this.serializer.writePacketDouble(buf, (Double) value);
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonElement element) {
+            accessor.setDouble(recipe, this.serializer.readJsonDouble(element));
+        }
+
+        @Override
+        void readJson(RecipeFieldAccessor accessor, Object recipe, JsonReader reader) throws IOException {
+            accessor.setDouble(recipe, this.serializer.readJsonDouble(reader));
+        }
+
+        @Override
+        void readPacket(RecipeFieldAccessor accessor, Object recipe, PacketByteBuf buf, boolean compact) {
+            accessor.setDouble(recipe, this.serializer.readPacketDouble(buf));
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, RecipeFieldAccessor accessor, Object recipe, boolean compact) {
+            this.serializer.writePacketDouble(buf, accessor.getDouble(recipe));
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.serializer.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            return this.serializer.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return this.boxed.describe();
+        }
+    }
+
+    /**
+     * A {@link LazyVar}, which holds the raw JSON or packet bytes of its value until it is used. In packets, the value is prefixed by its length so that it can
+     * be read without being decoded.
+     */
+    static final class OfLazy extends RecipeVarCodec {
+
+        private final RecipeVarCodec value;
+
+        OfLazy(RecipeVarCodec value) {
+            this.value = value;
+        }
+
+        @Override
+        Object readJson(JsonElement element) {
+            return LazyVar.ofJson(element, this.value);
+        }
+
+        @Override
+        Object readJson(JsonReader reader) {
+            return LazyVar.ofJson(JsonParser.parseReader(reader), this.value);
+        }
+
+        @Override
+        JsonElement toJson(Object value) {
+            JsonElement json = ((LazyVar<?>) value).rawJson();
+            return json != null ? json : this.value.toJson(((LazyVar<?>) value).get());
+        }
+
+        @Override
+        Object readPacket(PacketByteBuf buf, boolean compact) {
+            return LazyVar.ofPacket(buf.readByteArray(), this.value, compact);
+        }
+
+        @Override
+        void writePacket(PacketByteBuf buf, Object value, boolean compact) {
+            LazyVar<?> lazy = (LazyVar<?>) value;
+            byte[] bytes = lazy.rawPacket(compact);
+
+            if (bytes != null) {
+                buf.writeByteArray(bytes);
+                return;
+            }
+
+            PacketByteBuf encoded = new PacketByteBuf(Unpooled.buffer());
+            RecipeSyncContext context = RecipeSyncContext.suspend();
+
+            try {
+                this.value.writePacket(encoded, lazy.get(), compact);
+            } finally {
+                RecipeSyncContext.resume(context);
+            }
+
+            buf.writeVarInt(encoded.readableBytes());
+            buf.writeBytes(encoded);
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            return this.value.isThreadSafe();
+        }
+
+        @Override
+        boolean isPacketLossless() {
+            // Writing a value that has not been decoded from JSON would decode it
+            return false;
+        }
+
+        /**
+         * @return Whether the encoding of the value depends only on its JSON, so that an undecoded value can be compared by its JSON instead
+         */
+        boolean isValuePacketLossless() {
+            return this.value.isPacketLossless();
+        }
+
+        @Override
+        String describe() {
+            return "lazy(" + this.value.describe() + ")";
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+import io.github.jamalam360.autorecipe.AutoRecipeSerializer.RecipeVarData;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Describes a single {@link RecipeVar} field of a recipe class: its serialized variable, its generic type, and how to access it.
+ * <p>
+ * These are either discovered reflectively, or emitted directly by the Auto Recipe annotation processor.
+ *
+ * @param var The serialized variable
+ * @param fieldName The name of the Java field, used in error messages
+ * @param type The generic type of the field
+ * @param accessor Reads and writes the field on recipe instances
+ */
+public record RecipeVarField(RecipeVarData var, String fieldName, Type type, RecipeFieldAccessor accessor) {
+
+    /**
+     * The {@link RecipeVar} fields of each class, resolved once and shared by every serializer for the class. Each layout starts with its superclass's layout,
+     * so the fields of a common base class are only resolved once for all of its subclasses.
+     */
+    private static final ClassValue<List<RecipeVarField>> LAYOUTS = new ClassValue<>() {
+        @Override
+        protected List<RecipeVarField> computeValue(Class<?> clazz) {
+            List<RecipeVarField> result = new ArrayList<>();
+            Class<?> superclass = clazz.getSuperclass();
+
+            if (superclass != null && superclass != Object.class) {
+                result.addAll(LAYOUTS.get(superclass));
+            }
+
+            Field[] fields = clazz.getDeclaredFields();
+            // The order of getDeclaredFields is unspecified, so the fields are sorted by name, as the annotation processor does
+            Arrays.sort(fields, Comparator.comparing(Field::getName));
+
+            for (Field field : fields) {
+                RecipeVar annot = field.getAnnotation(RecipeVar.class);
+
+                if (annot != null && !Modifier.isStatic(field.getModifiers())) {
+                    String name = annot.value();
+
+                    if (name.equals("")) {
+                        name = field.getName();
+                    }
+
+                    result.add(new RecipeVarField(RecipeVarData.builder(name).required(annot.required()).key(annot.key()).shared(annot.shared()).immutable(annot.immutable()).build(), field.getName(), field.getGenericType(), RecipeFieldAccessor.of(field)));
+                }
+            }
+
+            return List.copyOf(result);
+        }
+    };
+
+    /**
+     * Discovers the {@link RecipeVar} fields of a class and its superclasses through reflection, including non-public fields.
+     *
+     * @return The fields in a stable order, which matches the order used by the Auto Recipe annotation processor: superclass fields first, then the fields of
+     * each class sorted by their Java names
+     */
+    static List<RecipeVarField> reflect(Class<?> clazz) {
+        return LAYOUTS.get(clazz);
+    }
+
+    /**
+     * Describes a parameterized field type, such as {@code List<ItemStack>}, without reflecting on the field. Used by serializers generated by the Auto Recipe
+     * annotation processor.
+     *
+     * @param rawType The raw class of the type
+     * @param arguments The type arguments, which are classes or other parameterized types
+     */
+    public static Type parameterized(Class<?> rawType, Type... arguments) {
+        if (rawType.getTypeParameters().length != arguments.length) {
+            throw new IllegalArgumentException("Expected " + rawType.getTypeParameters().length + " type arguments for " + rawType.getName() + ", got " + arguments.length);
+        }
+
+        return new Parameterized(rawType, arguments.clone());
+    }
+
+    private record Parameterized(Class<?> rawType, Type[] arguments) implements ParameterizedType {
+        @Override
+        public Type[] getActualTypeArguments() {
+            return this.arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return this.rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return this.rawType.getDeclaringClass();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ParameterizedType other && this.rawType.equals(other.getRawType()) && Arrays.equals(this.arguments, other.getActualTypeArguments()) && Objects.equals(this.getOwnerType(), other.getOwnerType());
+        }
+
+        @Override
+        public int hashCode() {
+            // Matches the hash code of the JDK's own parameterized types
+            return Arrays.hashCode(this.arguments) ^ Objects.hashCode(this.getOwnerType()) ^ this.rawType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder name = new StringBuilder(this.rawType.getTypeName()).append('<');
+
+            for (int i = 0; i < this.arguments.length; i++) {
+                name.append(i == 0 ? "" : ", ").append(this.arguments[i].getTypeName());
+            }
+
+            return name.append('>').toString();
+        }
+    }
+}
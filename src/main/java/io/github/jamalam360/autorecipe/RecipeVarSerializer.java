@@ -24,7 +24,12 @@
 
 package io.github.jamalam360.autorecipe;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.util.Collection;
 import net.minecraft.network.PacketByteBuf;
 
 /**
@@ -42,6 +47,18 @@ public interface RecipeVarSerializer<T> {
      */
     T readJson(JsonElement element);
 
+    /**
+     * Reads a value directly from a stream of JSON tokens, without building a tree. Defaults to parsing the next value into a tree and calling
+     * {@link #readJson(JsonElement)}.
+     *
+     * @param reader The reader, positioned at the value to be converted. The whole value must be consumed.
+     *
+     * @return An instance of the target type, parsed from the JSON value.
+     */
+    default T readJson(JsonReader reader) throws IOException {
+        return this.readJson(JsonParser.parseReader(reader));
+    }
+
     /**
      * Used for the {@link org.quiltmc.qsl.recipe.api.serializer.QuiltRecipeSerializer} implementation. This method is used to dump recipes for debugging if the
      * `quilt.recipe.dump` system property is true.
@@ -64,4 +81,300 @@ public interface RecipeVarSerializer<T> {
      * @param value The instance of the target type to write
      */
     void writePacket(PacketByteBuf buf, T value);
+
+    /**
+     * Used by recipe types using the {@link RecipePacketFormat#COMPACT compact} packet format. Defaults to {@link #readPacket(PacketByteBuf)}.
+     *
+     * @param buf The packet
+     *
+     * @return An instance of the target type, parsed from the packet.
+     */
+    default T readPacketCompact(PacketByteBuf buf) {
+        return this.readPacket(buf);
+    }
+
+    /**
+     * Used by recipe types using the {@link RecipePacketFormat#COMPACT compact} packet format, which may trade speed for size, for example by writing
+     * integers as variable length. Defaults to {@link #writePacket(PacketByteBuf, Object)}.
+     *
+     * @param buf The packet to write the data to
+     * @param value The instance of the target type to write
+     */
+    default void writePacketCompact(PacketByteBuf buf, T value) {
+        this.writePacket(buf, value);
+    }
+
+    /**
+     * Reads every element of a JSON array, used for {@code List}, {@code Set} and {@code DefaultedList} fields. Defaults to
+     * {@link #readJson(JsonElement)} for each element.
+     *
+     * @param array The JSON array to be converted
+     * @param into The collection to add the values to, in order
+     */
+    default void readJsonArray(JsonArray array, Collection<? super T> into) {
+        for (JsonElement element : array) {
+            into.add(this.readJson(element));
+        }
+    }
+
+    /**
+     * Reads values written by {@link #writePacketArray(PacketByteBuf, Collection)}, used for {@code List}, {@code Set} and {@code DefaultedList} fields.
+     * Defaults to {@link #readPacket(PacketByteBuf)} for each value. Serializers overriding this to use a bulk encoding must override
+     * {@link #writePacketArray(PacketByteBuf, Collection)} to match.
+     *
+     * @param buf The packet
+     * @param size The number of values, which is written by the caller
+     * @param into The collection to add the values to, in order
+     */
+    default void readPacketArray(PacketByteBuf buf, int size, Collection<? super T> into) {
+        for (int i = 0; i < size; i++) {
+            into.add(this.readPacket(buf));
+        }
+    }
+
+    /**
+     * Writes several values, used for {@code List}, {@code Set} and {@code DefaultedList} fields. Defaults to {@link #writePacket(PacketByteBuf, Object)}
+     * for each value.
+     *
+     * @param buf The packet to write the data to
+     * @param values The values to write, in order. Their number is written by the caller.
+     */
+    default void writePacketArray(PacketByteBuf buf, Collection<? extends T> values) {
+        for (T value : values) {
+            this.writePacket(buf, value);
+        }
+    }
+
+    /**
+     * @return Whether this serializer may be called from several threads at once, which allows recipes using it to be decoded in parallel. Serializers that
+     * only read from registries, which are frozen while recipes load, are thread safe.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * @return Whether reading a value written by {@link #writePacket(PacketByteBuf, Object)} always gives back an equal value, whatever the state of the game.
+     * Values of lossless serializers are stored in the persistent cache of a recipe type in their packet encoding, while other values are stored as their
+     * source JSON and decoded again. Encodings which resolve tags, or which drop data the client does not need, are not lossless.
+     */
+    default boolean isPacketLossless() {
+        return false;
+    }
+
+    /**
+     * A specialization of {@link RecipeVarSerializer} for {@code boolean} fields, which avoids boxing when reading and writing recipes.
+     */
+    interface OfBoolean extends RecipeVarSerializer<Boolean> {
+
+        boolean readJsonBoolean(JsonElement element);
+
+        default boolean readJsonBoolean(JsonReader reader) throws IOException {
+            return this.readJsonBoolean(JsonParser.parseReader(reader));
+        }
+
+        boolean readPacketBoolean(PacketByteBuf buf);
+
+        void writePacketBoolean(PacketByteBuf buf, boolean value);
+
+        @Override
+        default Boolean readJson(JsonElement element) {
+            return this.readJsonBoolean(element);
+        }
+
+        @Override
+        default Boolean readJson(JsonReader reader) throws IOException {
+            return this.readJsonBoolean(reader);
+        }
+
+        @Override
+        default Boolean readPacket(PacketByteBuf buf) {
+            return this.readPacketBoolean(buf);
+        }
+
+        @Override
+        default void writePacket(PacketByteBuf buf, Boolean value) {
+            this.writePacketBoolean(buf, value);
+        }
+    }
+
+    /**
+     * A specialization of {@link RecipeVarSerializer} for {@code int} fields, which avoids boxing when reading and writing recipes.
+     */
+    interface OfInt extends RecipeVarSerializer<Integer> {
+
+        int readJsonInt(JsonElement element);
+
+        default int readJsonInt(JsonReader reader) throws IOException {
+            return this.readJsonInt(JsonParser.parseReader(reader));
+        }
+
+        int readPacketInt(PacketByteBuf buf);
+
+        void writePacketInt(PacketByteBuf buf, int value);
+
+        default int readPacketIntCompact(PacketByteBuf buf) {
+            return this.readPacketInt(buf);
+        }
+
+        default void writePacketIntCompact(PacketByteBuf buf, int value) {
+            this.writePacketInt(buf, value);
+        }
+
+        @Override
+        default Integer readJson(JsonElement element) {
+            return this.readJsonInt(element);
+        }
+
+        @Override
+        default Integer readJson(JsonReader reader) throws IOException {
+            return this.readJsonInt(reader);
+        }
+
+        @Override
+        default Integer readPacket(PacketByteBuf buf) {
+            return this.readPacketInt(buf);
+        }
+
+        @Override
+        default void writePacket(PacketByteBuf buf, Integer value) {
+            this.writePacketInt(buf, value);
+        }
+
+        @Override
+        default Integer readPacketCompact(PacketByteBuf buf) {
+            return this.readPacketIntCompact(buf);
+        }
+
+        @Override
+        default void writePacketCompact(PacketByteBuf buf, Integer value) {
+            this.writePacketIntCompact(buf, value);
+        }
+    }
+
+    /**
+     * A specialization of {@link RecipeVarSerializer} for {@code long} fields, which avoids boxing when reading and writing recipes.
+     */
+    interface OfLong extends RecipeVarSerializer<Long> {
+
+        long readJsonLong(JsonElement element);
+
+        default long readJsonLong(JsonReader reader) throws IOException {
+            return this.readJsonLong(JsonParser.parseReader(reader));
+        }
+
+        long readPacketLong(PacketByteBuf buf);
+
+        void writePacketLong(PacketByteBuf buf, long value);
+
+        default long readPacketLongCompact(PacketByteBuf buf) {
+            return this.readPacketLong(buf);
+        }
+
+        default void writePacketLongCompact(PacketByteBuf buf, long value) {
+            this.writePacketLong(buf, value);
+        }
+
+        @Override
+        default Long readJson(JsonElement element) {
+            return this.readJsonLong(element);
+        }
+
+        @Override
+        default Long readJson(JsonReader reader) throws IOException {
+            return this.readJsonLong(reader);
+        }
+
+        @Override
+        default Long readPacket(PacketByteBuf buf) {
+            return this.readPacketLong(buf);
+        }
+
+        @Override
+        default void writePacket(PacketByteBuf buf, Long value) {
+            this.writePacketLong(buf, value);
+        }
+
+        @Override
+        default Long readPacketCompact(PacketByteBuf buf) {
+            return this.readPacketLongCompact(buf);
+        }
+
+        @Override
+        default void writePacketCompact(PacketByteBuf buf, Long value) {
+            this.writePacketLongCompact(buf, value);
+        }
+    }
+
+    /**
+     * A specialization of {@link RecipeVarSerializer} for {@code float} fields, which avoids boxing when reading and writing recipes.
+     */
+    interface OfFloat extends RecipeVarSerializer<Float> {
+
+        float readJsonFloat(JsonElement element);
+
+        default float readJsonFloat(JsonReader reader) throws IOException {
+            return this.readJsonFloat(JsonParser.parseReader(reader));
+        }
+
+        float readPacketFloat(PacketByteBuf buf);
+
+        void writePacketFloat(PacketByteBuf buf, float value);
+
+        @Override
+        default Float readJson(JsonElement element) {
+            return this.readJsonFloat(element);
+        }
+
+        @Override
+        default Float readJson(JsonReader reader) throws IOException {
+            return this.readJsonFloat(reader);
+        }
+
+        @Override
+        default Float readPacket(PacketByteBuf buf) {
+            return this.readPacketFloat(buf);
+        }
+
+        @Override
+        default void writePacket(PacketByteBuf buf, Float value) {
+            this.writePacketFloat(buf, value);
+        }
+    }
+
+    /**
+     * A specialization of {@link RecipeVarSerializer} for {@code double} fields, which avoids boxing when reading and writing recipes.
+     */
+    interface OfDouble extends RecipeVarSerializer<Double> {
+
+        double readJsonDouble(JsonElement element);
+
+        default double readJsonDouble(JsonReader reader) throws IOException {
+            return this.readJsonDouble(JsonParser.parseReader(reader));
+        }
+
+        double readPacketDouble(PacketByteBuf buf);
+
+        void writePacketDouble(PacketByteBuf buf, double value);
+
+        @Override
+        default Double readJson(JsonElement element) {
+            return this.readJsonDouble(element);
+        }
+
+        @Override
+        default Double readJson(JsonReader reader) throws IOException {
+            return this.readJsonDouble(reader);
+        }
+
+        @Override
+        default Double readPacket(PacketByteBuf buf) {
+            return this.readPacketDouble(buf);
+        }
+
+        @Override
+        default void writePacket(PacketByteBuf buf, Double value) {
+            this.writePacketDouble(buf, value);
+        }
+    }
 }
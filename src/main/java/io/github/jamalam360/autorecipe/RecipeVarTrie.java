@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A trie of the JSON paths of a recipe's variables, keyed by property name. This lets a stream of JSON tokens be matched against every variable in a single
+ * pass, skipping any properties that are not variables.
+ */
+final class RecipeVarTrie {
+
+    private final Map<String, RecipeVarTrie> children = new HashMap<>();
+    /**
+     * The index of the variable at this path, or -1 if this node is only an intermediate object.
+     */
+    private int field = -1;
+
+    private RecipeVarTrie() {
+    }
+
+    static RecipeVarTrie build(RecipeFieldCodec[] fields) {
+        RecipeVarTrie root = new RecipeVarTrie();
+
+        for (int i = 0; i < fields.length; i++) {
+            RecipeVarTrie node = root;
+
+            for (String part : fields[i].path) {
+                node = node.children.computeIfAbsent(part, p -> new RecipeVarTrie());
+            }
+
+            node.field = i;
+        }
+
+        return root;
+    }
+
+    RecipeVarTrie child(String name) {
+        return this.children.get(name);
+    }
+
+    int field() {
+        return this.field;
+    }
+
+    boolean hasChildren() {
+        return !this.children.isEmpty();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe.mixin;
+
+import io.github.jamalam360.autorecipe.RecipeSyncDelta;
+import io.github.jamalam360.autorecipe.RecipeSyncDeltaHolder;
+import java.util.Collection;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.SynchronizeRecipesS2CPacket;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+@Mixin(ClientPlayNetworkHandler.class)
+public class ClientPlayNetworkHandlerMixin {
+
+    /**
+     * The fingerprint of the auto recipes last synced from the server, or null if none have been or the server does not send them.
+     */
+    @Unique
+    private Long autorecipe$recipeFingerprint;
+
+    @Redirect(
+          method = "onSynchronizeRecipes",
+          at = @At(
+                value = "INVOKE",
+                target = "Lnet/minecraft/recipe/RecipeManager;setRecipes(Ljava/lang/Iterable;)V"
+          )
+    )
+    private void autorecipe$applyDelta(RecipeManager manager, Iterable<Recipe<?>> recipes, SynchronizeRecipesS2CPacket packet) {
+        RecipeSyncDelta delta = ((RecipeSyncDeltaHolder) packet).autorecipe$getDelta();
+
+        if (delta == null || !delta.isTracked()) {
+            manager.setRecipes(recipes);
+            this.autorecipe$recipeFingerprint = null;
+            return;
+        }
+
+        Collection<Recipe<?>> synced = delta.apply(this.autorecipe$recipeFingerprint, manager.values(), packet.getRecipes());
+
+        if (synced == null) {
+            this.autorecipe$recipeFingerprint = null;
+            ClientPlayNetworking.send(RecipeSyncDelta.CHANNEL, RecipeSyncDelta.createResyncRequest());
+            return;
+        }
+
+        manager.setRecipes(synced);
+        this.autorecipe$recipeFingerprint = delta.getFingerprint();
+        ClientPlayNetworking.send(RecipeSyncDelta.CHANNEL, delta.createAcknowledgement());
+    }
+}
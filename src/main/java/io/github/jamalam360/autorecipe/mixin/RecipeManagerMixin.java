@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe.mixin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
+import com.llamalad7.mixinextras.injector.wrapoperation.WrapOperation;
+import com.llamalad7.mixinextras.sugar.Share;
+import com.llamalad7.mixinextras.sugar.ref.LocalRef;
+import io.github.jamalam360.autorecipe.RecipeIndex;
+import io.github.jamalam360.autorecipe.RecipeIndexHolder;
+import io.github.jamalam360.autorecipe.RecipeReloads;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.recipe.RecipeType;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.profiler.Profiler;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(RecipeManager.class)
+public class RecipeManagerMixin implements RecipeIndexHolder {
+
+    @Unique
+    private volatile Map<RecipeType<?>, RecipeIndex<?, ?>> autorecipe$indexes = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<RecipeType<?>, RecipeIndex<?, ?>> autorecipe$getIndexes() {
+        return this.autorecipe$indexes;
+    }
+
+    @Inject(
+          method = "apply(Ljava/util/Map;Lnet/minecraft/resource/ResourceManager;Lnet/minecraft/util/profiler/Profiler;)V",
+          at = @At("HEAD")
+    )
+    private void autorecipe$beginReload(Map<Identifier, JsonElement> map, ResourceManager resourceManager, Profiler profiler, CallbackInfo ci,
+          @Share("reload") LocalRef<RecipeReloads.Reload> reload) {
+        reload.set(RecipeReloads.begin(map));
+    }
+
+    @WrapOperation(
+          method = "apply(Ljava/util/Map;Lnet/minecraft/resource/ResourceManager;Lnet/minecraft/util/profiler/Profiler;)V",
+          at = @At(
+                value = "INVOKE",
+                target = "Lnet/minecraft/recipe/RecipeManager;deserialize(Lnet/minecraft/util/Identifier;Lcom/google/gson/JsonObject;)Lnet/minecraft/recipe/Recipe;"
+          )
+    )
+    private Recipe<?> autorecipe$deserialize(Identifier id, JsonObject json, Operation<Recipe<?>> original, @Share("reload") LocalRef<RecipeReloads.Reload> reload) {
+        Recipe<?> recipe = RecipeReloads.getDecoded(reload.get(), id);
+        return recipe == null ? original.call(id, json) : recipe;
+    }
+
+    @Inject(
+          method = "apply(Ljava/util/Map;Lnet/minecraft/resource/ResourceManager;Lnet/minecraft/util/profiler/Profiler;)V",
+          at = @At("TAIL")
+    )
+    private void autorecipe$endReload(Map<Identifier, JsonElement> map, ResourceManager resourceManager, Profiler profiler, CallbackInfo ci,
+          @Share("reload") LocalRef<RecipeReloads.Reload> reload) {
+        RecipeReloads.end(reload.get());
+        this.autorecipe$indexes = new ConcurrentHashMap<>();
+    }
+
+    @Inject(
+          method = "setRecipes(Ljava/lang/Iterable;)V",
+          at = @At("TAIL")
+    )
+    private void autorecipe$setRecipes(Iterable<Recipe<?>> recipes, CallbackInfo ci) {
+        this.autorecipe$indexes = new ConcurrentHashMap<>();
+        RecipeReloads.replaced();
+    }
+}
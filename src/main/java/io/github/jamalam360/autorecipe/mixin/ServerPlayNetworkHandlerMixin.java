@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.github.jamalam360.autorecipe.mixin;
+
+import io.github.jamalam360.autorecipe.RecipeSyncDelta;
+import io.github.jamalam360.autorecipe.RecipeSyncStateHolder;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.network.PacketCallbacks;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.SynchronizeRecipesS2CPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.ModifyVariable;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ServerPlayNetworkHandler.class)
+public class ServerPlayNetworkHandlerMixin implements RecipeSyncStateHolder {
+
+    @Unique
+    private RecipeSyncDelta.ConnectionState autorecipe$syncState;
+
+    @Override
+    public RecipeSyncDelta.ConnectionState autorecipe$getSyncState() {
+        return this.autorecipe$syncState;
+    }
+
+    @Inject(method = "<init>", at = @At("RETURN"))
+    private void autorecipe$init(MinecraftServer server, ClientConnection connection, ServerPlayerEntity player, CallbackInfo ci) {
+        // Shared with the login handler, which records the recipe types the client cannot read
+        this.autorecipe$syncState = ((RecipeSyncStateHolder) connection).autorecipe$getSyncState();
+    }
+
+    @ModifyVariable(method = "sendPacket(Lnet/minecraft/network/packet/Packet;Lnet/minecraft/network/PacketCallbacks;)V", at = @At("HEAD"), argsOnly = true)
+    private Packet<?> autorecipe$syncRecipes(Packet<?> packet) {
+        return packet instanceof SynchronizeRecipesS2CPacket sync ? RecipeSyncDelta.forConnection(sync, (ServerPlayNetworkHandler) (Object) this) : packet;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe.mixin;
+
+import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
+import com.llamalad7.mixinextras.injector.wrapoperation.WrapOperation;
+import io.github.jamalam360.autorecipe.RecipeSyncContext;
+import io.github.jamalam360.autorecipe.RecipeSyncDelta;
+import io.github.jamalam360.autorecipe.RecipeSyncDeltaHolder;
+import java.util.Collection;
+import java.util.List;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.s2c.play.SynchronizeRecipesS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(SynchronizeRecipesS2CPacket.class)
+public class SynchronizeRecipesS2CPacketMixin implements RecipeSyncDeltaHolder {
+
+    @Unique
+    private RecipeSyncDelta autorecipe$delta;
+
+    @Override
+    public RecipeSyncDelta autorecipe$getDelta() {
+        return this.autorecipe$delta;
+    }
+
+    @Override
+    public void autorecipe$setDelta(RecipeSyncDelta delta) {
+        this.autorecipe$delta = delta;
+    }
+
+    @WrapOperation(
+          method = "<init>(Lnet/minecraft/network/PacketByteBuf;)V",
+          at = @At(
+                value = "INVOKE",
+                target = "Lnet/minecraft/network/PacketByteBuf;readList(Lnet/minecraft/network/PacketByteBuf$PacketReader;)Ljava/util/List;"
+          )
+    )
+    private List<?> autorecipe$read(PacketByteBuf buf, PacketByteBuf.PacketReader<?> reader, Operation<List<?>> original) {
+        RecipeSyncContext.begin();
+
+        try {
+            List<?> recipes = original.call(buf, reader);
+            this.autorecipe$delta = RecipeSyncDelta.read(buf);
+            return recipes;
+        } finally {
+            RecipeSyncContext.end();
+        }
+    }
+
+    @Inject(method = "write", at = @At("HEAD"), cancellable = true)
+    private void autorecipe$writeEncoded(PacketByteBuf buf, CallbackInfo ci) {
+        if (RecipeSyncDelta.writeEncoded(this.autorecipe$delta, buf)) {
+            ci.cancel();
+        }
+    }
+
+    @WrapOperation(
+          method = "write",
+          at = @At(
+                value = "INVOKE",
+                target = "Lnet/minecraft/network/PacketByteBuf;writeCollection(Ljava/util/Collection;Lnet/minecraft/network/PacketByteBuf$PacketWriter;)V"
+          )
+    )
+    private void autorecipe$write(PacketByteBuf buf, Collection<?> recipes, PacketByteBuf.PacketWriter<?> writer, Operation<Void> original) {
+        int start = buf.writerIndex();
+        RecipeSyncContext.begin();
+
+        try {
+            original.call(buf, recipes, writer);
+            RecipeSyncDelta.writeDelta(this.autorecipe$delta, buf);
+        } finally {
+            RecipeSyncContext.end();
+        }
+
+        RecipeSyncDelta.recordEncoded(this.autorecipe$delta, buf, start);
+    }
+}
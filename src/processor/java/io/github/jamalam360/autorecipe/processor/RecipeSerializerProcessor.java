@@ -0,0 +1,403 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2022 Emi (original creator), Jamalam (current maintainer)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.jamalam360.autorecipe.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates an {@code AutoRecipeSerializer} subclass for every concrete class with {@code @RecipeVar} fields, named after the class's binary name with the
+ * {@code _AutoRecipeSerializer} suffix. The generated serializer lists the recipe's fields, their generic types and accessors that read and write them
+ * directly, so no reflection is needed to discover or access them at runtime. Only locating the generated class when the recipe serializer is created is
+ * reflective.
+ * <p>
+ * The values of the fields are still read and written by the codecs of {@code AutoRecipeSerializer}, rather than by code generated for each field, as the
+ * codecs depend on the variable serializers registered at runtime, which may be replaced after the recipe serializer is created.
+ * <p>
+ * Classes whose variables cannot be accessed from generated code in the same package (such as private fields), or whose types cannot be described without
+ * reflection (such as wildcards), are skipped, and fall back to the reflective serializer.
+ */
+@SupportedAnnotationTypes("*")
+public class RecipeSerializerProcessor extends AbstractProcessor {
+
+    private static final String RECIPE_VAR = "io.github.jamalam360.autorecipe.RecipeVar";
+    private static final String SUFFIX = "_AutoRecipeSerializer";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            this.processType(type);
+        }
+
+        return false;
+    }
+
+    private void processType(TypeElement type) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            this.processType(nested);
+        }
+
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return;
+        }
+
+        List<VariableElement> fields = this.collectFields(type);
+
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        String reason = this.findInaccessible(type, fields);
+
+        if (reason != null) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Not generating a serializer for " + type.getQualifiedName() + ", " + reason + "; the reflective serializer will be used instead", type);
+            return;
+        }
+
+        try {
+            this.generate(type, fields);
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to generate a serializer for " + type.getQualifiedName() + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * @return Every {@code @RecipeVar} field of the type and its superclasses, superclass fields first, then the fields of each class sorted by name
+     */
+    private List<VariableElement> collectFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        TypeMirror superclass = type.getSuperclass();
+
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            fields.addAll(this.collectFields((TypeElement) ((DeclaredType) superclass).asElement()));
+        }
+
+        List<VariableElement> declared = new ArrayList<>();
+
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (getRecipeVar(field) != null && !field.getModifiers().contains(Modifier.STATIC)) {
+                declared.add(field);
+            }
+        }
+
+        // Sorted by name to match RecipeVarField, as the order of reflected fields is unspecified
+        declared.sort(Comparator.comparing(field -> field.getSimpleName().toString()));
+        fields.addAll(declared);
+        return fields;
+    }
+
+    private String findInaccessible(TypeElement type, List<VariableElement> fields) {
+        PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(type);
+
+        for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                return "it is not accessible from its package";
+            }
+
+            if (e instanceof TypeElement t && t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)
+                  && t.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                return "it is an inner class";
+            }
+        }
+
+        if (!type.getTypeParameters().isEmpty()) {
+            return "it is generic";
+        }
+
+        for (VariableElement field : fields) {
+            Set<Modifier> modifiers = field.getModifiers();
+            boolean samePackage = this.processingEnv.getElementUtils().getPackageOf(field).equals(pkg);
+
+            if (modifiers.contains(Modifier.PRIVATE) || (!modifiers.contains(Modifier.PUBLIC) && !samePackage)) {
+                return "field " + field.getSimpleName() + " is not accessible from its package";
+            }
+
+            // The field is accessed through its declaring class, so that a field shadowed by a subclass is not mistaken for the subclass's
+            for (Element e = field.getEnclosingElement(); e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+                if (e.getModifiers().contains(Modifier.PRIVATE) || (!e.getModifiers().contains(Modifier.PUBLIC) && !samePackage)) {
+                    return "the class declaring field " + field.getSimpleName() + " is not accessible from its package";
+                }
+            }
+
+            if (typeExpression(field.asType()) == null) {
+                return "the type of field " + field.getSimpleName() + " has a wildcard or type variable";
+            }
+
+            if (modifiers.contains(Modifier.FINAL)) {
+                return "field " + field.getSimpleName() + " is final";
+            }
+        }
+
+        return null;
+    }
+
+    private void generate(TypeElement type, List<VariableElement> fields) throws IOException {
+        String pkg = this.processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (pkg.isEmpty() ? binaryName : binaryName.substring(pkg.length() + 1)) + SUFFIX;
+        String recipe = type.getQualifiedName().toString();
+        StringBuilder out = new StringBuilder();
+
+        if (!pkg.isEmpty()) {
+            out.append("package ").append(pkg).append(";\n\n");
+        }
+
+        out.append("@javax.annotation.processing.Generated(\"").append(RecipeSerializerProcessor.class.getName()).append("\")\n");
+        out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        out.append("public final class ").append(simpleName).append(" extends io.github.jamalam360.autorecipe.AutoRecipeSerializer<").append(recipe).append("> {\n\n");
+        out.append("    public ").append(simpleName).append("(java.util.function.Function<net.minecraft.util.Identifier, ").append(recipe).append("> constructor, net.minecraft.util.Identifier id, io.github.jamalam360.autorecipe.AutoRecipeOptions options) {\n");
+        out.append("        super(constructor, ").append(recipe).append(".class, id, options, java.util.List.of(");
+
+        for (int i = 0; i < fields.size(); i++) {
+            out.append(i == 0 ? "\n" : ",\n");
+            this.generateField(out, fields.get(i));
+        }
+
+        out.append("\n        ));\n");
+        out.append("    }\n");
+        out.append("}\n");
+
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(pkg.isEmpty() ? simpleName : pkg + "." + simpleName, type).openWriter()) {
+            writer.write(out.toString());
+        }
+    }
+
+    private void generateField(StringBuilder out, VariableElement field) {
+        AnnotationMirror annotation = getRecipeVar(field);
+        String fieldName = field.getSimpleName().toString();
+        String name = fieldName;
+        boolean required = true;
+        boolean key = false;
+        boolean shared = false;
+        boolean immutable = false;
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : this.processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+            String element = entry.getKey().getSimpleName().toString();
+
+            if (element.equals("value") && !entry.getValue().getValue().toString().isEmpty()) {
+                name = entry.getValue().getValue().toString();
+            } else if (element.equals("required")) {
+                required = (Boolean) entry.getValue().getValue();
+            } else if (element.equals("key")) {
+                key = (Boolean) entry.getValue().getValue();
+            } else if (element.equals("shared")) {
+                shared = (Boolean) entry.getValue().getValue();
+            } else if (element.equals("immutable")) {
+                immutable = (Boolean) entry.getValue().getValue();
+            }
+        }
+
+        TypeMirror fieldType = this.processingEnv.getTypeUtils().erasure(field.asType());
+        String genericType = typeName(field.asType());
+        String access = "((" + ((TypeElement) field.getEnclosingElement()).getQualifiedName() + ") recipe)." + fieldName;
+        String type = typeExpression(field.asType());
+
+        out.append("              new io.github.jamalam360.autorecipe.RecipeVarField(\n");
+        out.append("                    io.github.jamalam360.autorecipe.AutoRecipeSerializer.RecipeVarData.builder(").append(this.processingEnv.getElementUtils().getConstantExpression(name)).append(')');
+        // Only the flags that differ from the defaults of @RecipeVar are set
+        out.append(required ? "" : ".required(false)").append(key ? ".key(true)" : "").append(shared ? ".shared(true)" : "").append(immutable ? ".immutable(true)" : "");
+        out.append(".build(),\n");
+        out.append("                    \"").append(fieldName).append("\",\n");
+        out.append("                    ").append(type).append(",\n");
+        out.append("                    new io.github.jamalam360.autorecipe.RecipeFieldAccessor() {\n");
+        out.append("                        @Override\n");
+        out.append("                        public Object get(Object recipe) {\n");
+        out.append("                            return ").append(access).append(";\n");
+        out.append("                        }\n\n");
+        out.append("                        @Override\n");
+        out.append("                        public void set(Object recipe, Object value) {\n");
+
+        if (fieldType.getKind().isPrimitive()) {
+            out.append("                            ").append(access).append(" = (").append(boxed(fieldType.getKind())).append(") value;\n");
+        } else {
+            out.append("                            ").append(access).append(" = (").append(genericType).append(") value;\n");
+        }
+
+        out.append("                        }\n");
+
+        String primitive = switch (fieldType.getKind()) {
+            case BOOLEAN -> "Boolean";
+            case INT -> "Int";
+            case LONG -> "Long";
+            case FLOAT -> "Float";
+            case DOUBLE -> "Double";
+            default -> null;
+        };
+
+        if (primitive != null) {
+            out.append("\n                        @Override\n");
+            out.append("                        public ").append(genericType).append(" get").append(primitive).append("(Object recipe) {\n");
+            out.append("                            return ").append(access).append(";\n");
+            out.append("                        }\n\n");
+            out.append("                        @Override\n");
+            out.append("                        public void set").append(primitive).append("(Object recipe, ").append(genericType).append(" value) {\n");
+            out.append("                            ").append(access).append(" = value;\n");
+            out.append("                        }\n");
+        }
+
+        out.append("                    }\n");
+        out.append("              )");
+    }
+
+    /**
+     * @return The source name of a type, without the type annotations that {@link TypeMirror#toString()} includes
+     */
+    private static String typeName(TypeMirror type) {
+        return switch (type.getKind()) {
+            case DECLARED -> {
+                DeclaredType declared = (DeclaredType) type;
+                StringBuilder name = new StringBuilder(((TypeElement) declared.asElement()).getQualifiedName());
+
+                if (!declared.getTypeArguments().isEmpty()) {
+                    name.append('<');
+
+                    for (int i = 0; i < declared.getTypeArguments().size(); i++) {
+                        name.append(i == 0 ? "" : ", ").append(typeName(declared.getTypeArguments().get(i)));
+                    }
+
+                    name.append('>');
+                }
+
+                yield name.toString();
+            }
+            case ARRAY -> typeName(((ArrayType) type).getComponentType()) + "[]";
+            case WILDCARD -> {
+                WildcardType wildcard = (WildcardType) type;
+
+                if (wildcard.getExtendsBound() != null) {
+                    yield "? extends " + typeName(wildcard.getExtendsBound());
+                } else if (wildcard.getSuperBound() != null) {
+                    yield "? super " + typeName(wildcard.getSuperBound());
+                }
+
+                yield "?";
+            }
+            case TYPEVAR -> ((TypeVariable) type).asElement().getSimpleName().toString();
+            default -> type.getKind().toString().toLowerCase(Locale.ROOT);
+        };
+    }
+
+    /**
+     * @return An expression creating the {@link java.lang.reflect.Type} of a field, or null if it has a wildcard or type variable, which the reflective
+     * serializer does not support either
+     */
+    private static String typeExpression(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declared = (DeclaredType) type;
+            String raw = ((TypeElement) declared.asElement()).getQualifiedName() + ".class";
+
+            if (declared.getTypeArguments().isEmpty()) {
+                return raw;
+            }
+
+            StringBuilder expression = new StringBuilder("io.github.jamalam360.autorecipe.RecipeVarField.parameterized(").append(raw);
+
+            for (TypeMirror argument : declared.getTypeArguments()) {
+                String argumentExpression = typeExpression(argument);
+
+                if (argumentExpression == null) {
+                    return null;
+                }
+
+                expression.append(", ").append(argumentExpression);
+            }
+
+            return expression.append(')').toString();
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            String component = typeExpression(((ArrayType) type).getComponentType());
+            // Generic array types are described by their erasure, as the reflective serializer only uses their raw type
+            return component == null ? null : erasedName(type) + ".class";
+        } else if (type.getKind().isPrimitive()) {
+            return typeName(type) + ".class";
+        }
+
+        return null;
+    }
+
+    private static String erasedName(TypeMirror type) {
+        return switch (type.getKind()) {
+            case DECLARED -> ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+            case ARRAY -> erasedName(((ArrayType) type).getComponentType()) + "[]";
+            default -> typeName(type);
+        };
+    }
+
+    private static String boxed(TypeKind kind) {
+        return switch (kind) {
+            case BOOLEAN -> "Boolean";
+            case BYTE -> "Byte";
+            case SHORT -> "Short";
+            case INT -> "Integer";
+            case LONG -> "Long";
+            case CHAR -> "Character";
+            case FLOAT -> "Float";
+            case DOUBLE -> "Double";
+            default -> throw new IllegalArgumentException(kind.toString());
+        };
+    }
+
+    private static AnnotationMirror getRecipeVar(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(RECIPE_VAR)) {
+                return mirror;
+            }
+        }
+
+        return null;
+    }
+}
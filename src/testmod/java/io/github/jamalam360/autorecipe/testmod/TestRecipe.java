@@ -32,9 +32,9 @@ import net.minecraft.registry.DynamicRegistryManager;
 import net.minecraft.world.World;
 
 public class TestRecipe extends AutoSerializedRecipe<Inventory> {
-    @RecipeVar
+    @RecipeVar(key = true)
     ItemStack input;
-    @RecipeVar
+    @RecipeVar(shared = true)
     ItemStack output;
     @RecipeVar("time")
     int processingTime;
@@ -24,7 +24,9 @@
 
 package io.github.jamalam360.autorecipe.testmod;
 
+import io.github.jamalam360.autorecipe.AutoRecipeOptions;
 import io.github.jamalam360.autorecipe.AutoRecipeRegistry;
+import io.github.jamalam360.autorecipe.RecipePacketFormat;
 import java.util.List;
 import net.fabricmc.fabric.api.event.player.UseBlockCallback;
 import net.minecraft.block.Blocks;
@@ -40,13 +42,13 @@ public class TestmodInit implements ModInitializer {
 
     @Override
     public void onInitialize(ModContainer mod) {
-        RecipeType<TestRecipe> type1 = AutoRecipeRegistry.registerRecipeSerializer(new Identifier("autorecipe_testmod", "test_recipe"), TestRecipe::new);
-        RecipeType<TestInheritedRecipe> type2 = AutoRecipeRegistry.registerRecipeSerializer(new Identifier("autorecipe_testmod", "inherited_recipe"), TestInheritedRecipe::new);
+        RecipeType<TestRecipe> type1 = AutoRecipeRegistry.registerRecipeSerializer(new Identifier("autorecipe_testmod", "test_recipe"), TestRecipe::new, AutoRecipeOptions.builder().threadSafe().persistentCache().incrementalReload().build());
+        RecipeType<TestInheritedRecipe> type2 = AutoRecipeRegistry.registerRecipeSerializer(new Identifier("autorecipe_testmod", "inherited_recipe"), TestInheritedRecipe::new, AutoRecipeOptions.builder().packetFormat(RecipePacketFormat.COMPACT).build());
 
 
         UseBlockCallback.EVENT.register(((player, world, hand, hitResult) -> {
             if (!world.isClient && world.getBlockState(hitResult.getBlockPos()).isOf(Blocks.IRON_BLOCK)) {
-                List<TestRecipe> recipes = world.getRecipeManager().getAllMatches(type1, new SimpleInventory(1), world);
+                List<TestRecipe> recipes = AutoRecipeRegistry.getRecipeIndex(world.getRecipeManager(), type1).getAllMatches(new SimpleInventory(player.getStackInHand(hand)), world);
 
                 for (TestRecipe recipe : recipes) {
                     player.sendMessage(Text.literal(recipe.toString()), false);